@@ -0,0 +1,63 @@
+import benchmarks.BlockKernel;
+import benchmarks.PlayerKernels;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/** Liga os benchmarks (pacote benchmarks) às classes do player (pacote default). */
+public class PlayerKernelsImpl implements PlayerKernels {
+
+    @Override
+    public BlockKernel firBandPass(int taps, boolean useFft) {
+        FirBandPass filter = new FirBandPass(44100.0, 665.0, 2150.0, (taps - 1) / 2, useFft);
+        return filter::processBlock;
+    }
+
+    @Override
+    public BlockKernel equalizer(int taps, String gains, boolean combinedKernel) {
+        EqualizerEngine engine = new EqualizerEngine((taps - 1) / 2);
+        engine.setCombinedKernel(combinedKernel);
+
+        switch (gains) {
+            case "oneBand" -> engine.setBandGainDb(2, 6.0);
+            case "allBands" -> {
+                double[] db = { 6.0, -3.0, 4.0, 9.0, -6.0 };
+                for (int b = 0; b < db.length; b++) {
+                    engine.setBandGainDb(b, db[b]);
+                }
+            }
+            default -> { }
+        }
+        return engine::processInPlace;
+    }
+
+    @Override
+    public BlockKernel parallelEqualizer(int taps, boolean combinedKernel, int threads) {
+        double[] db = { 6.0, -3.0, 4.0, 9.0, -6.0 };
+        ParallelEqualizer eq = new ParallelEqualizer(() -> {
+            EqualizerEngine engine = new EqualizerEngine((taps - 1) / 2);
+            engine.setCombinedKernel(combinedKernel);
+            engine.setGainsDb(db);
+            return engine;
+        }, 2, 4096, new ForkJoinPool(threads));
+        return eq::process;
+    }
+
+    @Override
+    public BlockKernel spectrumAnalyzer(int fftSize, Consumer<double[]> listener) {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(44100f, fftSize, listener);
+        return analyzer::analyze;
+    }
+
+    @Override
+    public BlockKernel octaveAnalyzer(int fraction, Consumer<double[]> listener) {
+        OctaveAnalyzer analyzer = new OctaveAnalyzer(44100f, fraction, r -> listener.accept(r.bandDb));
+        return analyzer::analyze;
+    }
+
+    @Override
+    public BlockKernel floatToPcm16(int maxSamples) {
+        byte[] out = new byte[maxSamples * 2];
+        return (block, length) -> Mp3RealTimeDecoder.floatToPcm16(block, length, out);
+    }
+}
@@ -0,0 +1,7 @@
+package benchmarks;
+
+/** Um passo de DSP aplicado a um bloco de samples. */
+public interface BlockKernel {
+
+    void process(float[] block, int length);
+}
@@ -0,0 +1,19 @@
+package benchmarks;
+
+import java.util.Random;
+
+/** Sinais de teste compartilhados pelos benchmarks. */
+final class DspFixtures {
+
+    private DspFixtures() {
+    }
+
+    /** Ruído branco em [-0.5, 0.5] (deixa folga para ganhos positivos). */
+    static float[] noise(int length, Random rnd) {
+        float[] x = new float[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = rnd.nextFloat() - 0.5f;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EqualizerEngine.processInPlace sobre blocos estéreo intercalados.
+ * blockSize é em frames (o bloco tem 2 × blockSize samples).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class EqualizerEngineBenchmark {
+
+    @Param({"256", "1024", "4096", "8192"})
+    public int blockSize;
+
+    @Param({"129"})
+    public int taps;
+
+    /** flat = todas em 0 dB, oneBand = só a banda 2, allBands = todas ativas */
+    @Param({"flat", "oneBand", "allBands"})
+    public String gains;
+
+    @Param({"false", "true"})
+    public boolean combinedKernel;
+
+    private BlockKernel engine;
+    private float[] source;
+    private float[] block;
+
+    @Setup
+    public void setup() {
+        engine = PlayerKernels.load().equalizer(taps, gains, combinedKernel);
+        source = DspFixtures.noise(2 * blockSize, new Random(2));
+        block = new float[source.length];
+    }
+
+    @Benchmark
+    public float[] processInPlace(SampleCounter counter) {
+        // recarrega o bloco: o limiter normaliza in-place e o sinal decairia
+        System.arraycopy(source, 0, block, 0, block.length);
+        engine.process(block, block.length);
+        counter.samples += block.length;
+        return block;
+    }
+}
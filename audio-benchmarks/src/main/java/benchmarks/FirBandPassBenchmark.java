@@ -0,0 +1,51 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** FirBandPass.processBlock (mono), forma direta vs. FFT. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class FirBandPassBenchmark {
+
+    @Param({"256", "1024", "4096", "8192"})
+    public int blockSize;
+
+    @Param({"33", "129", "513"})
+    public int taps;
+
+    @Param({"direct", "fft"})
+    public String mode;
+
+    private BlockKernel filter;
+    private float[] block;
+
+    @Setup
+    public void setup() {
+        filter = PlayerKernels.load().firBandPass(taps, "fft".equals(mode));
+        block = DspFixtures.noise(blockSize, new Random(1));
+    }
+
+    @Benchmark
+    public float[] processBlock(SampleCounter counter) {
+        filter.process(block, blockSize);
+        counter.samples += blockSize;
+        return block;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por bloco estéreo dos analisadores: "spectrum" é o SpectrumAnalyzer
+ * de 10 bandas (FFT 1024); "1", "3" e "6" são o OctaveAnalyzer em 1/1
+ * (11 bandas), 1/3 (31) e 1/6 de oitava (61). Ambos publicam a 10 Hz.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class OctaveAnalyzerBenchmark {
+
+    @Param({"spectrum", "1", "3", "6"})
+    public String analyzer;
+
+    @Param({"1024", "4096"})
+    public int blockSize;
+
+    private BlockKernel kernel;
+    private float[] block;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        PlayerKernels kernels = PlayerKernels.load();
+        kernel = "spectrum".equals(analyzer)
+                ? kernels.spectrumAnalyzer(1024, bh::consume)
+                : kernels.octaveAnalyzer(Integer.parseInt(analyzer), bh::consume);
+        block = DspFixtures.noise(2 * blockSize, new Random(3));
+    }
+
+    @Benchmark
+    public void analyze(SampleCounter counter) {
+        kernel.process(block, block.length);
+        counter.samples += block.length;
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escalabilidade do ParallelEqualizer: 30 s de áudio estéreo por chamada,
+ * variando o número de threads do pool. Com ns/amostra caindo ~1/threads
+ * até o número de cores, o custo das emendas (N-1 amostras de histórico
+ * por segmento) é desprezível.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ParallelEqualizerBenchmark {
+
+    private static final int SECONDS = 30;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"129"})
+    public int taps;
+
+    @Param({"false", "true"})
+    public boolean combinedKernel;
+
+    private BlockKernel equalizer;
+    private float[] source;
+    private float[] signal;
+
+    @Setup
+    public void setup() {
+        equalizer = PlayerKernels.load().parallelEqualizer(taps, combinedKernel, threads);
+        source = DspFixtures.noise(2 * 44100 * SECONDS, new Random(5));
+        signal = new float[source.length];
+    }
+
+    @Benchmark
+    public float[] process(SampleCounter counter) {
+        System.arraycopy(source, 0, signal, 0, signal.length);
+        equalizer.process(signal, signal.length);
+        counter.samples += signal.length;
+        return signal;
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Conversão float → PCM16 LE do Mp3RealTimeDecoder (blockSize em frames). */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class Pcm16Benchmark {
+
+    @Param({"256", "1024", "4096", "8192"})
+    public int blockSize;
+
+    private BlockKernel pcm16;
+    private float[] block;
+
+    @Setup
+    public void setup() {
+        block = DspFixtures.noise(2 * blockSize, new Random(4));
+        pcm16 = PlayerKernels.load().floatToPcm16(block.length);
+    }
+
+    @Benchmark
+    public void floatToPcm16(SampleCounter counter) {
+        pcm16.process(block, block.length);
+        counter.samples += block.length;
+    }
+}
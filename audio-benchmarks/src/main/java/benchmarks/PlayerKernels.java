@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.function.Consumer;
+
+/**
+ * Fábrica dos caminhos quentes do player.
+ *
+ * As classes do player ficam no pacote default, que não pode ser importado
+ * por um pacote nomeado (e o JMH exige benchmarks em pacote nomeado).
+ * A implementação ({@code PlayerKernelsImpl}, no pacote default) é carregada
+ * uma vez por reflexão; depois disso as chamadas são monomórficas e o JIT
+ * as inlina normalmente.
+ */
+public interface PlayerKernels {
+
+    BlockKernel firBandPass(int taps, boolean useFft);
+
+    /** gains: "flat" (tudo 0 dB), "oneBand" (banda 2) ou "allBands". */
+    BlockKernel equalizer(int taps, String gains, boolean combinedKernel);
+
+    /**
+     * ParallelEqualizer com todas as bandas ativas, num ForkJoinPool de
+     * threads workers; o kernel processa um sinal longo inteiro por chamada.
+     */
+    BlockKernel parallelEqualizer(int taps, boolean combinedKernel, int threads);
+
+    BlockKernel spectrumAnalyzer(int fftSize, Consumer<double[]> listener);
+
+    /** OctaveAnalyzer com fraction bandas por oitava (1, 3 ou 6); recebe as bandas em dB. */
+    BlockKernel octaveAnalyzer(int fraction, Consumer<double[]> listener);
+
+    /** Conversão float → PCM16 LE do Mp3RealTimeDecoder. */
+    BlockKernel floatToPcm16(int maxSamples);
+
+    static PlayerKernels load() {
+        try {
+            return (PlayerKernels) Class.forName("PlayerKernelsImpl")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("PlayerKernelsImpl não encontrado", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** SpectrumAnalyzer.analyze sobre blocos estéreo (blockSize em frames). */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SpectrumAnalyzerBenchmark {
+
+    @Param({"256", "1024", "4096", "8192"})
+    public int blockSize;
+
+    @Param({"1024"})
+    public int fftSize;
+
+    private BlockKernel analyzer;
+    private float[] block;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        analyzer = PlayerKernels.load().spectrumAnalyzer(fftSize, bh::consume);
+        block = DspFixtures.noise(2 * blockSize, new Random(3));
+    }
+
+    @Benchmark
+    public void analyze(SampleCounter counter) {
+        analyzer.process(block, block.length);
+        counter.samples += block.length;
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GainServerTest {
+
+    private final EqualizerEngine engine = new EqualizerEngine();
+    private final GainServer server = new GainServer(0, engine);   // sem socket: parse + publish
+    private final GainServer.Connection conn = new GainServer.Connection("cliente");
+
+    @Test
+    void testMultiBandRecordSplitAcrossReadsIsAppliedWhole() {
+        byte[] record = GainRecord.encode(new int[] { 0, 1, 4 }, new float[] { 6f, -3f, 9f }, 10L);
+        ByteBuffer in = conn.in;
+        GainSnapshot before = engine.getGains();
+
+        // primeira leitura: cabeçalho e uma entrada e meia
+        in.put(record, 0, GainRecord.HEADER_SIZE + 12);
+        pass(conn);
+        assertSame(before, engine.getGains());
+
+        // segunda leitura: o resto do registro
+        in.put(record, GainRecord.HEADER_SIZE + 12, record.length - GainRecord.HEADER_SIZE - 12);
+        pass(conn);
+        assertEquals(6.0, engine.getBandGainDb(0));
+        assertEquals(-3.0, engine.getBandGainDb(1));
+        assertEquals(0.0, engine.getBandGainDb(2));
+        assertEquals(9.0, engine.getBandGainDb(4));
+        assertEquals(0, in.position());
+    }
+
+    @Test
+    void testRecordsInOnePassBecomeOneSnapshot() {
+        ByteBuffer in = conn.in;
+        in.put(GainRecord.encode(2, 3f, 1L));
+        in.put(GainRecord.encode(3, -6f, 2L));
+        in.put("{\"type\":\"setGain\",\"band\":2,\"gainDb\":5}\n".getBytes());
+        in.put(GainRecord.encode(2, 4f, 3L));
+
+        GainSnapshot before = engine.getGains();
+        in.flip();
+        server.parse(conn, System.nanoTime());
+        assertSame(before, engine.getGains());   // nada publicado durante a leitura
+
+        server.publishPending();
+        GainSnapshot after = engine.getGains();
+        assertEquals(4.0, after.getGainDb(2));    // último valor da banda na volta
+        assertEquals(-6.0, after.getGainDb(3));
+
+        server.publishPending();                  // lote vazio: nenhum snapshot novo
+        assertSame(after, engine.getGains());
+    }
+
+    @Test
+    void testOlderSequenceLosesPerBand() {
+        ByteBuffer in = conn.in;
+        in.put(GainRecord.encode(new int[] { 0, 1 }, new float[] { 6f, 6f }, 100L));
+        pass(conn);
+
+        // reenvio atrasado (seq menor) não desfaz o valor mais novo
+        in.put(GainRecord.encode(new int[] { 0, 1 }, new float[] { -6f, -6f }, 99L));
+        pass(conn);
+        assertEquals(6.0, engine.getBandGainDb(0));
+        assertEquals(6.0, engine.getBandGainDb(1));
+
+        // a sequência é por banda: a banda 1 aceita 101 e a 0 continua em 100
+        in.put(GainRecord.encode(1, -2f, 101L));
+        in.put(GainRecord.encode(0, -9f, 50L));
+        pass(conn);
+        assertEquals(6.0, engine.getBandGainDb(0));
+        assertEquals(-2.0, engine.getBandGainDb(1));
+
+        // JSON sem seq vale pela ordem de chegada
+        in.put("{\"type\":\"setGain\",\"band\":0,\"gainDb\":1.5}\n".getBytes());
+        pass(conn);
+        assertEquals(1.5, engine.getBandGainDb(0));
+    }
+
+    @Test
+    void testClientsWithDifferentSeedsLastToArriveWins() {
+        // b começou bem depois de a: sequências milhões à frente
+        GainServer.Connection a = new GainServer.Connection("a");
+        GainServer.Connection b = new GainServer.Connection("b");
+        long seedA = 1_000L;
+        long seedB = 5_000_000_000L;
+
+        b.in.put(GainRecord.encode(0, 6f, seedB + 1));
+        pass(b);
+        assertEquals(6.0, engine.getBandGainDb(0));
+
+        a.in.put(GainRecord.encode(0, -3f, seedA + 1));
+        pass(a);
+        assertEquals(-3.0, engine.getBandGainDb(0));
+
+        // na mesma volta, também vale a ordem de chegada
+        b.in.put(GainRecord.encode(0, 2f, seedB + 2));
+        a.in.put(GainRecord.encode(0, 4f, seedA + 2));
+        b.in.flip();
+        server.parse(b, System.nanoTime());
+        b.in.compact();
+        a.in.flip();
+        server.parse(a, System.nanoTime());
+        a.in.compact();
+        server.publishPending();
+        assertEquals(4.0, engine.getBandGainDb(0));
+
+        // dentro de uma conexão a sequência ainda descarta o mais antigo
+        a.in.put(GainRecord.encode(0, -9f, seedA));
+        pass(a);
+        assertEquals(4.0, engine.getBandGainDb(0));
+
+        // cliente reiniciado (relógio voltou): conexão nova, aceito
+        GainServer.Connection restarted = new GainServer.Connection("a2");
+        restarted.in.put(GainRecord.encode(0, 1f, 1L));
+        pass(restarted);
+        assertEquals(1.0, engine.getBandGainDb(0));
+    }
+
+    /** Uma volta do Selector: lê o que há em c.in (modo escrita) e publica. */
+    private void pass(GainServer.Connection c) {
+        c.in.flip();
+        server.parse(c, System.nanoTime());
+        c.in.compact();
+        server.publishPending();
+    }
+}
@@ -0,0 +1,39 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class Mp3RealTimeDecoderTest {
+
+    private static final File MP3 = new File("../AmyWinehouse.mp3");
+
+    /** Engine que falha no terceiro bloco. */
+    private static final class FailingEngine extends EqualizerEngine {
+        private int blocks = 0;
+
+        @Override
+        public void processInPlace(float[] samples, int length) {
+            if (++blocks == 3) {
+                throw new IllegalStateException("falha simulada no EQ");
+            }
+            super.processInPlace(samples, length);
+        }
+    }
+
+    @Test
+    void testEqualizerFailureFailsStart(@TempDir Path dir) {
+        assumeTrue(MP3.isFile(), "MP3 de teste ausente: " + MP3.getAbsolutePath());
+
+        Mp3RealTimeDecoder decoder = new Mp3RealTimeDecoder(MP3.getPath(), 1024, new FailingEngine());
+        decoder.setOutputFile(dir.resolve("out.wav").toString());
+
+        IOException e = assertThrows(IOException.class, () -> decoder.start(block -> { }));
+        assertEquals(IllegalStateException.class, e.getCause().getClass());
+    }
+}
@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OctaveAnalyzerTest {
+
+    private static final float FS = 44100f;
+
+    private OctaveAnalyzer.Reading last;
+    private int readings = 0;
+
+    private OctaveAnalyzer analyzer(int fraction) {
+        return new OctaveAnalyzer(FS, fraction, r -> {
+            last = r;
+            readings++;
+        });
+    }
+
+    /** frames de seno (amplitude 1) em L e/ou R, em blocos de 1024 frames. */
+    private static void feedSine(OctaveAnalyzer a, double hz, int frames, boolean left, boolean right) {
+        float[] block = new float[2048];
+        for (int done = 0; done < frames; done += 1024) {
+            for (int i = 0; i < 1024; i++) {
+                float v = (float) Math.sin(2.0 * Math.PI * hz * (done + i) / FS);
+                block[2 * i] = left ? v : 0f;
+                block[2 * i + 1] = right ? v : 0f;
+            }
+            a.analyze(block);
+        }
+    }
+
+    @Test
+    void testFullScale997HzInOneChannelReadsMinus3Lufs() {
+        // BS.1770: seno de 997 Hz em 0 dBFS num canal = -3,01 LUFS
+        OctaveAnalyzer a = analyzer(3);
+        feedSine(a, 997.0, (int) FS, true, false);
+        assertEquals(-3.0, last.momentaryLufs, 0.1);
+        assertEquals(0.0, last.peakDb, 0.01);
+    }
+
+    @Test
+    void testSineLandsInItsOwnThirdOctaveBand() {
+        for (double hz : new double[] { 63.0, 1000.0, 8000.0 }) {
+            OctaveAnalyzer a = analyzer(3);
+            feedSine(a, hz, (int) FS, true, true);
+
+            double[] centers = a.getCenterFrequencies();
+            int expected = 0;
+            for (int b = 1; b < centers.length; b++) {
+                if (Math.abs(Math.log(centers[b] / hz)) < Math.abs(Math.log(centers[expected] / hz))) {
+                    expected = b;
+                }
+            }
+
+            // seno de amplitude 1 = -3 dBFS na banda; vizinhas bem abaixo
+            // (63 Hz é o pior caso: a banda de 80 Hz é lida num nível menos
+            // decimado, com bins mais largos, e o lóbulo da Hann chega a -19 dB)
+            double[] db = last.bandDb;
+            assertEquals(-3.0, db[expected], 0.5, hz + " Hz");
+            assertTrue(db[expected - 1] < db[expected] - 15, hz + " Hz, banda abaixo: " + db[expected - 1]);
+            assertTrue(db[expected + 1] < db[expected] - 15, hz + " Hz, banda acima: " + db[expected + 1]);
+        }
+    }
+
+    @Test
+    void testRaisingTheUpdateRateMidIntervalKeepsPublishing() {
+        OctaveAnalyzer a = analyzer(1);
+        float[] block = new float[2 * 1000];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (float) Math.sin(i * 0.01);
+        }
+
+        a.analyze(block);                // 1000 frames: 10 Hz = 4410 frames por publicação
+        a.analyze(block);
+        a.analyze(block);
+        assertEquals(0, readings);
+
+        a.setUpdateRateHz(20);           // 2205 frames, já passados 3000
+        a.analyze(block);
+        assertEquals(1, readings);       // publica logo no início do bloco
+
+        for (int i = 0; i < 9; i++) {
+            a.analyze(block);
+        }
+        assertEquals(5, readings);       // e segue em 20 Hz: 1 + 9000 / 2205
+    }
+}
@@ -0,0 +1,44 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class OfflineRendererTest {
+
+    private static final File MP3 = new File("../AmyWinehouse.mp3");
+
+    /** Engine que falha no terceiro bloco. */
+    private static final class FailingEngine extends EqualizerEngine {
+        private int blocks = 0;
+
+        @Override
+        public void processInPlace(float[] samples, int length) {
+            if (++blocks == 3) {
+                throw new IllegalStateException("falha simulada no EQ");
+            }
+            super.processInPlace(samples, length);
+        }
+    }
+
+    @Test
+    void testEqualizerFailureFailsTheRender() {
+        assumeTrue(MP3.isFile(), "MP3 de teste ausente: " + MP3.getAbsolutePath());
+
+        for (int threads : new int[] { 1, 2 }) {
+            OfflineRenderer renderer = new OfflineRenderer()
+                    .setBlockFrames(1024)
+                    .setParallelism(threads)
+                    .setEngineFactory(FailingEngine::new);
+
+            IOException e = assertThrows(IOException.class,
+                    () -> renderer.render(MP3.getPath(), new ByteArrayOutputStream()),
+                    "parallelism=" + threads);
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+    }
+}
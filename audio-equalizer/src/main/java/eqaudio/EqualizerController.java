@@ -5,7 +5,7 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.inject.Inject;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 
 @Path("/eq")
@@ -48,13 +48,7 @@ public class EqualizerController {
         }
 
         // Enviar ao PlayerStandalone via socket TCP
-        Map<String, Object> msg = Map.of(
-                "type", "setGain",
-                "band", band,
-                "gainDb", gainDb
-        );
-
-        gainClient.sendToPlayer(msg);
+        gainClient.sendGain(band, gainDb);
 
         return Response.ok(Map.of(
                 "band", band,
@@ -68,8 +62,9 @@ public class EqualizerController {
     @Path("/bands")
     public Response setAllGains(Map<String, Double> body) {
 
-        Map<String, Object> socketMsg = new HashMap<>();
-        socketMsg.put("type", "setAll");
+        int[] bands = new int[5];
+        double[] gains = new double[5];
+        int n = 0;
 
         for (int band = 0; band < 5; band++) {
             String key = "band" + band;
@@ -77,12 +72,17 @@ public class EqualizerController {
             if (body.containsKey(key)) {
                 double db = body.get(key);
                 eqState.setGainDb(band, db);
-                socketMsg.put(key, db);
+                bands[n] = band;
+                gains[n] = db;
+                n++;
             }
         }
 
-        // Envia tudo ao PlayerStandalone
-        gainClient.sendToPlayer(socketMsg);
+        // Envia ao PlayerStandalone num único registro: todas as bandas
+        // entram no mesmo ajuste, nunca só uma parte
+        if (n > 0) {
+            gainClient.sendGains(Arrays.copyOf(bands, n), Arrays.copyOf(gains, n));
+        }
 
         return Response.ok(eqState.getAllGainsDb()).build();
     }
@@ -93,7 +93,8 @@ public class EqualizerController {
     public Response getStatus() {
         return Response.ok(Map.of(
                 "bands", eqState.getAllGainsDb(),
-                "playerConnection", "socket-client"
+                "playerConnection", gainClient.isConnected() ? "connected" : "reconnecting",
+                "pendingCommands", gainClient.getPendingCount()
         )).build();
     }
 }
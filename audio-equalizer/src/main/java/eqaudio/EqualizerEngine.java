@@ -1,18 +1,60 @@
 package eqaudio;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class EqualizerEngine {
 
     private static final float FS = 44100f;
     private static final int NUM_BANDS = 5;
+    private static final int DEFAULT_CHANNELS = 2;         // estéreo intercalado
+    private static final int DEFAULT_BLOCK_FRAMES = 1024;
+
+    private final int channels;
+
+    // 5 filtros FIR, um por banda (cada um com estado separado por canal)
+    private final MultiChannelFir[] bands = new MultiChannelFir[NUM_BANDS];
 
-    // 5 filtros FIR, um por banda
-    private final FirBandPass[] bands = new FirBandPass[NUM_BANDS];
+    // ganhos por banda (dB e linear) e kernel combinado, publicados como
+    // snapshot imutável: o thread de áudio lê um conjunto consistente por bloco
+    private final AtomicReference<GainSnapshot> gains;
+    private final double[][] bandKernels = new double[NUM_BANDS][];
 
-    // ganhos por banda (dB e linear)
-    private final double[] gainDb = new double[NUM_BANDS];
-    private final double[] gainLinear = new double[NUM_BANDS];
+    // Modo kernel combinado: h = δ + Σ (A_i - 1) * h_i num único FIR
+    private volatile boolean combinedKernel = false;
+    private MultiChannelFir combinedFilter;   // kernel em uso
+    private MultiChannelFir fadeFilter;       // kernel novo durante o crossfade
+    private final double[] activeKernel;      // cópia do kernel em combinedFilter
+    private double[] nextKernel;              // kernel de fadeFilter
+    private boolean activeIdentity = true;
+    private boolean fading = false;
+    private final GainRamp fade = new GainRamp(0f);
+    private GainSnapshot kernelLoaded; // snapshot cujo kernel está no combinedFilter (só thread de áudio)
 
+    // Transições sem clique: cada correção (A_i - 1) segue uma rampa linear
+    // de rampFrames amostras (no modo combinado, crossfade entre kernels).
+    private volatile int rampFrames = (int) Math.round(20.0 * FS / 1000.0); // 20 ms
+    private final GainRamp[] bandCorr = new GainRamp[NUM_BANDS];
+    private GainSnapshot rampTarget; // snapshot seguido pelas rampas (só thread de áudio)
+    private boolean started = false; // o primeiro bloco aplica os ganhos direto
+    private boolean lastCombined = false; // modo do bloco anterior (só thread de áudio)
+
+    // Buffers planares [canal][frame] reutilizados entre blocos: nada é
+    // alocado no caminho quente depois que atingem o maior bloco já visto.
+    private float[][] original;
+    private float[][] output;
+    private float[][] work;
+
+    /** Equalizador para áudio estéreo intercalado (L,R,L,R,...). */
     public EqualizerEngine() {
+        this(DEFAULT_CHANNELS);
+    }
+
+    /**
+     * @param channels  número de canais intercalados em cada bloco
+     */
+    public EqualizerEngine(int channels) {
+        this.channels = channels;
         int K = 64; // N = 2K+1 = 129 taps
 
         // Frequências centrais (Hz)
@@ -31,11 +73,61 @@ public class EqualizerEngine {
         for (int i = 0; i < NUM_BANDS; i++) {
             double fLow  = cut[i];
             double fHigh = cut[i + 1];
-            bands[i] = new FirBandPass(FS, fLow, fHigh, K);
+            bands[i] = new MultiChannelFir(channels, FS, fLow, fHigh, K);
+            bandKernels[i] = bands[i].getCoefficients();
+        }
+
+        // todas começam em 0 dB
+        GainSnapshot flat = GainSnapshot.flat(NUM_BANDS, bandKernels);
+        gains = new AtomicReference<>(flat);
+
+        combinedFilter = new MultiChannelFir(channels, flat.kernel);
+        fadeFilter = new MultiChannelFir(channels, flat.kernel);
+        activeKernel = flat.kernel.clone();
+        nextKernel = flat.kernel;
+        kernelLoaded = flat;
 
-            gainDb[i] = 0.0;
-            gainLinear[i] = 1.0; // 0 dB
+        for (int b = 0; b < NUM_BANDS; b++) {
+            bandCorr[b] = new GainRamp(0f);
         }
+        rampTarget = flat;
+
+        allocateBuffers(DEFAULT_BLOCK_FRAMES);
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Liga/desliga o modo de kernel combinado: as 5 bandas viram um único
+     * FIR, recalculado a cada mudança de ganho, e cada bloco faz só uma
+     * convolução (custo independente do número de bandas).
+     *
+     * Pode mudar a qualquer momento, inclusive durante a reprodução: os
+     * filtros do modo que não está em uso continuam recebendo a entrada
+     * (só o histórico, sem convolução), então o outro modo assume no
+     * próximo bloco com a linha de atraso em dia, sem transitório. Uma
+     * rampa de ganho em andamento na hora da troca termina de uma vez.
+     */
+    public void setCombinedKernel(boolean enabled) {
+        this.combinedKernel = enabled;
+    }
+
+    public boolean isCombinedKernel() {
+        return combinedKernel;
+    }
+
+    /**
+     * Duração das transições de ganho em ms (0 = troca imediata no bloco).
+     * Vale a partir da próxima mudança.
+     */
+    public void setRampTimeMs(double ms) {
+        rampFrames = (int) Math.round(Math.max(0.0, ms) * FS / 1000.0);
+    }
+
+    public double getRampTimeMs() {
+        return rampFrames * 1000.0 / FS;
     }
 
     /**
@@ -43,8 +135,34 @@ public class EqualizerEngine {
      */
     public void setBandGainDb(int bandIndex, double db) {
         if (bandIndex < 0 || bandIndex >= NUM_BANDS) return;
-        gainDb[bandIndex] = db;
-        gainLinear[bandIndex] = Math.pow(10.0, db / 20.0);
+
+        double[] update = new double[NUM_BANDS];
+        Arrays.fill(update, Double.NaN);
+        update[bandIndex] = db;
+        setGainsDb(update);
+    }
+
+    /**
+     * Atualiza várias bandas de uma vez (NaN = mantém a banda).
+     * O thread de áudio vê todas as mudanças no mesmo bloco, nunca metade.
+     */
+    public void setGainsDb(double[] db) {
+        GainSnapshot current;
+        GainSnapshot next;
+        do {
+            current = gains.get();
+            next = current.with(db, bandKernels);
+        } while (!gains.compareAndSet(current, next));
+    }
+
+    public double getBandGainDb(int bandIndex) {
+        if (bandIndex < 0 || bandIndex >= NUM_BANDS) return 0.0;
+        return gains.get().getGainDb(bandIndex);
+    }
+
+    /** Ganhos atuais (imutável). */
+    public GainSnapshot getGains() {
+        return gains.get();
     }
 
     /**
@@ -62,46 +180,219 @@ public class EqualizerEngine {
      * - x[n]         = samples original
      * - banda_i[n]   = x[n] filtrado pela banda i
      * - A_i          = ganho linear da banda i
+     *
+     * O bloco é intercalado (L,R,L,R,...); cada canal é filtrado
+     * separadamente, com sua própria linha de atraso.
+     *
+     * Quando os ganhos mudam, (A_i - 1) vai do valor antigo ao novo em
+     * rampa linear ao longo dos próximos blocos, em vez de saltar.
      */
     public void processInPlace(float[] samples, int length) {
-        if (length <= 0) return;
+        int frames = length / channels;
+        if (frames <= 0) return;
+        int used = frames * channels;
 
-        // 1) Guarda o sinal original x[n]
-        float[] original = new float[length];
-        System.arraycopy(samples, 0, original, 0, length);
+        ensureCapacity(frames);
+        float[][] original = this.original;
+        float[][] output = this.output;
+        float[][] work = this.work;
 
-        // 2) Começa a saída com o próprio sinal original (dry)
-        System.arraycopy(original, 0, samples, 0, length);
+        // ganhos deste bloco: uma única leitura da referência publicada
+        GainSnapshot snap = gains.get();
+        int ramp = started ? rampFrames : 0;
+        started = true;
 
-        // Buffer de trabalho para cada banda
-        float[] work = new float[length];
+        // troca de modo: o estado de ganhos do modo que assume (rampas ou
+        // kernel carregado) parou no último bloco em que ele rodou, então
+        // ele recomeça direto nos ganhos atuais, como no primeiro bloco
+        boolean combined = combinedKernel;
+        if (combined != lastCombined) {
+            lastCombined = combined;
+            rampTarget = null;
+            kernelLoaded = null;
+            ramp = 0;
+        }
+
+        if (combined) {
+            processCombined(samples, frames, snap, ramp);
+            clamp(samples, used);
+            return;
+        }
+
+        // novos alvos: as rampas recomeçam do ganho que está soando agora
+        if (rampTarget != snap) {
+            for (int b = 0; b < NUM_BANDS; b++) {
+                bandCorr[b].setTarget((float) (snap.gainLin[b] - 1.0), ramp);
+            }
+            rampTarget = snap;
+        }
+
+        // 1) Guarda o sinal original x[n], separado por canal
+        MultiChannelFir.deinterleave(samples, original, channels, frames);
+        combinedFilter.feedPlanar(original, frames);   // histórico do modo combinado
+
+        // 2) Começa a saída com o próprio sinal original (dry)
+        for (int c = 0; c < channels; c++) {
+            System.arraycopy(original[c], 0, output[c], 0, frames);
+        }
 
         // 3) Para cada banda, calcula correção relativa (A_i - 1)
         for (int b = 0; b < NUM_BANDS; b++) {
 
-            double gLin = gainLinear[b];
-            double delta = gLin - 1.0;
+            GainRamp delta = bandCorr[b];
 
-            // Se ganho é ~0 dB (A≈1), não precisa fazer nada para essa banda
-            if (Math.abs(delta) < 1e-6) {
+            // Se ganho é ~0 dB (A≈1) e sem rampa, não precisa filtrar essa
+            // banda: só mantém o histórico do FIR para uma futura mudança
+            if (delta.isSteady() && Math.abs(delta.value()) < 1e-6f) {
+                bands[b].feedPlanar(original, frames);
                 continue;
             }
 
             // Copia x[n] para o buffer de trabalho
-            System.arraycopy(original, 0, work, 0, length);
+            for (int c = 0; c < channels; c++) {
+                System.arraycopy(original[c], 0, work[c], 0, frames);
+            }
 
             // Filtra -> work[] = banda_b[n]
-            bands[b].processBlock(work, length);
+            bands[b].processPlanar(work, frames);
 
-            float g = (float) delta;
-
-            // y += (A_i - 1) * banda_i[n]
-            for (int i = 0; i < length; i++) {
-                samples[i] += g * work[i];
+            // y += (A_i - 1)[n] * banda_i[n]  (mesma rampa em todos os canais)
+            for (int c = 0; c < channels; c++) {
+                delta.accumulate(output[c], work[c], frames);
             }
+            delta.advance(frames);
         }
 
+        MultiChannelFir.interleave(output, samples, channels, frames);
+
         // 4) Clamping leve para evitar estouro além de [-1,1]
+        clamp(samples, used);
+    }
+
+    /**
+     * Modo kernel combinado. Uma troca de kernel vira um crossfade entre a
+     * saída do kernel antigo e a do novo (mesmo histórico de entrada), o que
+     * equivale a interpolar os coeficientes amostra a amostra.
+     */
+    private void processCombined(float[] samples, int frames, GainSnapshot snap, int ramp) {
+        float[][] output = this.output;
+        float[][] work = this.work;
+
+        // troca de kernel só aqui, na fronteira do bloco
+        if (kernelLoaded != snap) {
+            if (ramp <= 0) {
+                System.arraycopy(snap.kernel, 0, activeKernel, 0, activeKernel.length);
+                combinedFilter.setCoefficients(activeKernel);
+                activeIdentity = snap.identity;
+                fading = false;
+                fade.jumpTo(0f);
+            } else {
+                if (fading) {
+                    // alvo mudou no meio do crossfade: a mistura atual vira o kernel em uso
+                    double a = fade.value();
+                    for (int i = 0; i < activeKernel.length; i++) {
+                        activeKernel[i] += a * (nextKernel[i] - activeKernel[i]);
+                    }
+                    combinedFilter.setCoefficients(activeKernel);
+                    activeIdentity = false;
+                }
+                fadeFilter.copyStateFrom(combinedFilter);
+                fadeFilter.setCoefficients(snap.kernel);
+                nextKernel = snap.kernel;
+                fade.jumpTo(0f);
+                fade.setTarget(1f, ramp);
+                fading = true;
+            }
+            kernelLoaded = snap;
+        }
+
+        MultiChannelFir.deinterleave(samples, output, channels, frames);
+
+        // histórico das bandas em dia para uma volta ao modo por banda
+        for (int b = 0; b < NUM_BANDS; b++) {
+            bands[b].feedPlanar(output, frames);
+        }
+
+        if (!fading) {
+            if (activeIdentity) {
+                // kernel = δ: saída = entrada, só mantém o histórico
+                combinedFilter.feedPlanar(output, frames);
+                return;
+            }
+            // uma única convolução (por canal) com o kernel composto
+            combinedFilter.processPlanar(output, frames);
+            MultiChannelFir.interleave(output, samples, channels, frames);
+            return;
+        }
+
+        for (int c = 0; c < channels; c++) {
+            System.arraycopy(output[c], 0, work[c], 0, frames);
+        }
+        combinedFilter.processPlanar(output, frames);
+        fadeFilter.processPlanar(work, frames);
+
+        // y = y_antigo + a[n] * (y_novo - y_antigo), a: 0 → 1
+        for (int c = 0; c < channels; c++) {
+            float[] yOld = output[c];
+            float[] diff = work[c];
+            for (int i = 0; i < frames; i++) {
+                diff[i] -= yOld[i];
+            }
+            fade.accumulate(yOld, diff, frames);
+        }
+        fade.advance(frames);
+        MultiChannelFir.interleave(output, samples, channels, frames);
+
+        if (fade.isSteady()) {
+            // fim do crossfade: o filtro novo passa a ser o ativo
+            MultiChannelFir t = combinedFilter;
+            combinedFilter = fadeFilter;
+            fadeFilter = t;
+            System.arraycopy(nextKernel, 0, activeKernel, 0, activeKernel.length);
+            activeIdentity = kernelLoaded.identity;
+            fading = false;
+            fade.jumpTo(0f);
+        }
+    }
+
+    /** Amostras de histórico (por canal) de que os FIRs dependem: N - 1. */
+    public int getHistoryFrames() {
+        return bands[0].getNumTaps() - 1;
+    }
+
+    /**
+     * Alimenta só o histórico de todos os filtros com um trecho intercalado
+     * que precede o próximo bloco, sem gerar saída nem mexer em ganhos e
+     * rampas. Com {@link #getHistoryFrames()} frames, o engine passa a
+     * produzir exatamente o que produziria se tivesse processado o sinal
+     * desde o início (usado pelo ParallelEqualizer).
+     */
+    public void primeHistory(float[] samples, int length) {
+        int frames = length / channels;
+        if (frames <= 0) return;
+
+        ensureCapacity(frames);
+        MultiChannelFir.deinterleave(samples, original, channels, frames);
+        for (int b = 0; b < NUM_BANDS; b++) {
+            bands[b].feedPlanar(original, frames);
+        }
+        combinedFilter.feedPlanar(original, frames);
+    }
+
+    /** Cresce os buffers de trabalho (só acontece fora do regime permanente). */
+    private void ensureCapacity(int frames) {
+        if (original[0].length < frames) {
+            allocateBuffers(frames);
+        }
+    }
+
+    private void allocateBuffers(int frames) {
+        original = new float[channels][frames];
+        output = new float[channels][frames];
+        work = new float[channels][frames];
+    }
+
+    private static void clamp(float[] samples, int length) {
         for (int i = 0; i < length; i++) {
             if (samples[i] > 1.0f) samples[i] = 1.0f;
             else if (samples[i] < -1.0f) samples[i] = -1.0f;
@@ -1,25 +1,158 @@
 package eqaudio;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Envia comandos de ganho ao PlayerStandalone por uma conexão TCP
+ * persistente.
+ *
+ * sendGain/sendToPlayer só serializam e enfileiram (não bloqueiam o REST);
+ * um thread escritor mantém o socket aberto, envia as mensagens na ordem
+ * em que foram enfileiradas (várias por flush quando chegam em rajada) e
+ * reconecta sozinho se o player cair ou ainda não tiver subido. O lote que
+ * falhar no envio é reenviado depois da reconexão.
+ *
+ * Ganhos vão como registros binários de tamanho fixo ({@link GainRecord});
+ * sendToPlayer continua aceitando JSON para os demais comandos.
+ */
 @ApplicationScoped
 public class GainClient {
 
+    private static final String HOST = "localhost";
+    private static final int PORT = 5555;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 500;
+
     private final ObjectMapper mapper = new ObjectMapper();
+    private final BlockingQueue<byte[]> outbox = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    // sequência dos registros, crescente neste cliente; o player só a
+    // compara dentro da mesma conexão, então o valor inicial não importa
+    private final AtomicLong seq = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile boolean connected = false;
+    private Thread writer;
+
+    @PostConstruct
+    void start() {
+        writer = new Thread(this::writeLoop, "gain-client-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        writer.interrupt();
+    }
+
+    /** Ganho de uma banda, como registro binário. */
+    public void sendGain(int band, double gainDb) {
+        enqueue(GainRecord.encode(band, (float) gainDb, seq.incrementAndGet()));
+    }
+
+    /**
+     * Ganhos de várias bandas num único registro: o player aplica todas no
+     * mesmo snapshot, nunca só uma parte.
+     */
+    public void sendGains(int[] bands, double[] gainsDb) {
+        float[] gains = new float[gainsDb.length];
+        for (int i = 0; i < gains.length; i++) {
+            gains[i] = (float) gainsDb[i];
+        }
+        enqueue(GainRecord.encode(bands, gains, seq.incrementAndGet()));
+    }
 
     public void sendToPlayer(Map<String, Object> json) {
-        try (Socket sock = new Socket("localhost", 5555)) {
-            PrintWriter out = new PrintWriter(
-                    new OutputStreamWriter(sock.getOutputStream()), true);
+        String line;
+        try {
+            line = mapper.writeValueAsString(json) + "\n";
+        } catch (JsonProcessingException e) {
+            System.err.println("[GainClient] Falha ao serializar comando: " + e.getMessage());
+            return;
+        }
+        enqueue(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void enqueue(byte[] message) {
+        // fila cheia (player fora do ar): descarta o comando mais antigo
+        while (!outbox.offer(message)) {
+            if (outbox.poll() != null) {
+                System.err.println("[GainClient] Fila cheia, comando antigo descartado");
+            }
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /** Comandos aguardando envio. */
+    public int getPendingCount() {
+        return outbox.size();
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>();
+        boolean warned = false;
+
+        while (running) {
+            try (Socket sock = new Socket()) {
+                sock.connect(new InetSocketAddress(HOST, PORT), CONNECT_TIMEOUT_MS);
+                sock.setTcpNoDelay(true);
+                OutputStream out = new BufferedOutputStream(sock.getOutputStream());
+
+                connected = true;
+                warned = false;
+                System.out.println("[GainClient] Conectado ao player em " + HOST + ":" + PORT);
+
+                while (running) {
+                    if (batch.isEmpty()) {
+                        batch.add(outbox.take());
+                        outbox.drainTo(batch); // o que já chegou vai no mesmo flush
+                    }
+                    for (byte[] message : batch) {
+                        out.write(message);
+                    }
+                    out.flush();
+                    batch.clear();
+                }
+
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                if (connected || !warned) {
+                    System.err.println("[GainClient] Sem conexão com o player ("
+                            + e.getMessage() + "), tentando novamente...");
+                    warned = true;
+                }
+                connected = false;
+            }
 
-            out.println(mapper.writeValueAsString(json));
-        } catch (Exception e) {
-            System.err.println("[GainClient] Falha ao enviar comando: " + e.getMessage());
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                break;
+            }
         }
+        connected = false;
     }
 }
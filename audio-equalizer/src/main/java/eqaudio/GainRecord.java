@@ -0,0 +1,87 @@
+package eqaudio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Registro binário de ganhos do canal de controle Quarkus → player
+ * (big-endian), alternativa às linhas JSON. Um registro leva uma ou mais
+ * bandas e é aplicado por inteiro, num único snapshot de ganhos:
+ *
+ *   byte  0       MAGIC
+ *   byte  1       número de bandas n
+ *   bytes 2..3    reservado (0)
+ *   bytes 4..11   número de sequência (long, crescente por cliente)
+ *   n entradas de ENTRY_SIZE bytes a partir do byte 12:
+ *     byte  0       banda
+ *     bytes 1..3    reservado (0)
+ *     bytes 4..7    ganho em dB (float)
+ *
+ * MAGIC nunca inicia uma linha JSON, então os dois formatos podem se
+ * misturar na mesma conexão. O servidor descarta, banda a banda, um valor
+ * cuja sequência é menor que a última que a mesma conexão enviou para a
+ * banda; entre conexões (clientes diferentes) vence o último a chegar.
+ */
+public final class GainRecord {
+
+    public static final byte MAGIC = (byte) 0xE9;
+    public static final int HEADER_SIZE = 12;
+    public static final int ENTRY_SIZE = 8;
+
+    private GainRecord() {
+    }
+
+    /** Tamanho total de um registro com n bandas. */
+    public static int size(int n) {
+        return HEADER_SIZE + n * ENTRY_SIZE;
+    }
+
+    /** Uma banda. */
+    public static byte[] encode(int band, float gainDb, long seq) {
+        return encode(new int[] { band }, new float[] { gainDb }, seq);
+    }
+
+    /** Várias bandas, aplicadas juntas. */
+    public static byte[] encode(int[] bands, float[] gainsDb, long seq) {
+        ByteBuffer out = ByteBuffer.allocate(size(bands.length));
+        write(out, bands, gainsDb, seq);
+        return out.array();
+    }
+
+    public static void write(ByteBuffer out, int[] bands, float[] gainsDb, long seq) {
+        out.put(MAGIC);
+        out.put((byte) bands.length);
+        out.putShort((short) 0);
+        out.putLong(seq);
+        for (int i = 0; i < bands.length; i++) {
+            out.put((byte) bands[i]);
+            out.put((byte) 0);
+            out.putShort((short) 0);
+            out.putFloat(gainsDb[i]);
+        }
+    }
+
+    // leitura absoluta a partir do início do registro (off); count e size
+    // só precisam do cabeçalho, o resto só depois de size(in, off) bytes
+
+    public static int count(ByteBuffer in, int off) {
+        return in.get(off + 1) & 0xFF;
+    }
+
+    public static int size(ByteBuffer in, int off) {
+        return size(count(in, off));
+    }
+
+    public static long seq(ByteBuffer in, int off) {
+        return in.getLong(off + 4);
+    }
+
+    /** Banda da entrada i. */
+    public static int band(ByteBuffer in, int off, int i) {
+        return in.get(off + HEADER_SIZE + i * ENTRY_SIZE) & 0xFF;
+    }
+
+    /** Ganho em dB da entrada i. */
+    public static float gainDb(ByteBuffer in, int off, int i) {
+        return in.getFloat(off + HEADER_SIZE + i * ENTRY_SIZE + 4);
+    }
+}
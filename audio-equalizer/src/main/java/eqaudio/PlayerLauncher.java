@@ -31,6 +31,7 @@ public class PlayerLauncher {
 
         ProcessBuilder pb = new ProcessBuilder(
                 JAVA_CMD,
+                "--add-modules", "jdk.incubator.vector", // FIR com SIMD (SimdFir)
                 "-cp", "src:lib/*",
                 "PlayerStandalone",
                 mp3Path
@@ -0,0 +1,88 @@
+package eqaudio;
+
+/**
+ * FFT de n amostras reais via uma FFT complexa de n/2 pontos.
+ *
+ * As amostras pares vão na parte real e as ímpares na imaginária
+ * (z[k] = x[2k] + i·x[2k+1]); depois da FFT de n/2 pontos, um passo de
+ * pós-processamento separa os espectros das duas metades e os combina:
+ *
+ *   E[k] = (Z[k] + conj Z[n/2-k]) / 2
+ *   O[k] = (Z[k] - conj Z[n/2-k]) / 2i
+ *   X[k] = E[k] + e^{-2πik/n} · O[k],   k = 0 .. n/2
+ *
+ * Custa pouco mais da metade de uma FFT complexa de n pontos com a parte
+ * imaginária zerada. Os bins k > n/2 são o conjugado de X[n-k] e não são
+ * calculados.
+ *
+ * Tem buffers de trabalho próprios: uma instância por thread.
+ */
+public final class RealFft {
+
+    private final int n;
+    private final int half;
+    private final FftPlan plan;
+    private final double[] postCos;   // cos(-2πk/n), k <= n/2
+    private final double[] postSin;
+    private final double[] zr;
+    private final double[] zi;
+
+    public RealFft(int n) {
+        if (n < 2 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("Tamanho da FFT real deve ser potência de 2 >= 2: " + n);
+        }
+        this.n = n;
+        this.half = n / 2;
+        this.plan = new FftPlan(half);
+        this.zr = new double[half];
+        this.zi = new double[half];
+
+        this.postCos = new double[half + 1];
+        this.postSin = new double[half + 1];
+        for (int k = 0; k <= half; k++) {
+            double theta = -2.0 * Math.PI * k / n;
+            postCos[k] = Math.cos(theta);
+            postSin[k] = Math.sin(theta);
+        }
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /** Número de bins devolvidos por {@link #forward}: n/2 + 1 (DC .. Nyquist). */
+    public int bins() {
+        return half + 1;
+    }
+
+    /**
+     * Espectro de x[0 .. n): escreve X[0 .. n/2] em (outRe, outIm), que
+     * precisam de pelo menos n/2 + 1 posições. x não é alterado.
+     */
+    public void forward(double[] x, double[] outRe, double[] outIm) {
+        for (int k = 0; k < half; k++) {
+            zr[k] = x[2 * k];
+            zi[k] = x[2 * k + 1];
+        }
+
+        plan.transform(zr, zi);
+
+        for (int k = 0; k <= half; k++) {
+            int a = (k == half) ? 0 : k;
+            int b = (k == 0) ? 0 : half - k;
+
+            double ar = zr[a], ai = zi[a];
+            double br = zr[b], bi = zi[b];
+
+            double er = 0.5 * (ar + br);
+            double ei = 0.5 * (ai - bi);
+            double or = 0.5 * (ai + bi);
+            double oi = -0.5 * (ar - br);
+
+            double wr = postCos[k];
+            double wi = postSin[k];
+            outRe[k] = er + wr * or - wi * oi;
+            outIm[k] = ei + wr * oi + wi * or;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package eqaudio;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Produto escalar do FIR com a Vector API (jdk.incubator.vector).
+ *
+ * Só é carregada quando o módulo está presente (JVM iniciada com
+ * --add-modules jdk.incubator.vector); caso contrário o {@link FirBandPass}
+ * usa o laço escalar e esta classe nunca é resolvida.
+ */
+public final class SimdFir {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private SimdFir() {
+    }
+
+    /** Vale a pena só com pelo menos 4 lanes de double (AVX2 ou maior). */
+    static boolean isSupported() {
+        return SPECIES.length() >= 4;
+    }
+
+    /**
+     * Σ a[i] * b[bOff + i], i = 0..n-1.
+     */
+    static double dot(double[] a, double[] b, int bOff, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int step = SPECIES.length();
+        int upper = SPECIES.loopBound(n);
+
+        int i = 0;
+        for (; i < upper; i += step) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            acc = va.fma(vb, acc);
+        }
+
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            sum += a[i] * b[bOff + i];
+        }
+        return sum;
+    }
+}
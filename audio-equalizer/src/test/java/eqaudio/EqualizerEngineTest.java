@@ -0,0 +1,184 @@
+package eqaudio;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EqualizerEngineTest {
+
+    private static final double[] GAINS_DB = { 6.0, -3.0, 0.0, 9.0, -12.0 };
+
+    @Test
+    void testCombinedKernelMatchesPerBandFilters() {
+        EqualizerEngine perBand = new EqualizerEngine();
+        EqualizerEngine combined = new EqualizerEngine();
+        combined.setCombinedKernel(true);
+
+        for (int b = 0; b < GAINS_DB.length; b++) {
+            perBand.setBandGainDb(b, GAINS_DB[b]);
+            combined.setBandGainDb(b, GAINS_DB[b]);
+        }
+
+        Random rnd = new Random(7);
+        for (int block = 0; block < 20; block++) {
+            float[] a = new float[2048];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = (rnd.nextFloat() * 2f - 1f) * 0.25f;
+            }
+            float[] b = a.clone();
+
+            perBand.processInPlace(a, a.length);
+            combined.processInPlace(b, b.length);
+
+            for (int i = 0; i < a.length; i++) {
+                assertEquals(a[i], b[i], 1e-4, "bloco=" + block + " i=" + i);
+            }
+        }
+    }
+
+    @Test
+    void testGainRampIsTheSameInBothModes() {
+        // rampa por banda e crossfade de kernels são a mesma interpolação linear
+        EqualizerEngine perBand = new EqualizerEngine();
+        EqualizerEngine combined = new EqualizerEngine();
+        combined.setCombinedKernel(true);
+
+        Random rnd = new Random(9);
+        for (int block = 0; block < 30; block++) {
+            // mudanças em blocos seguidos: novo alvo no meio de uma rampa
+            if (block == 2 || block == 3 || block == 12) {
+                double[] db = new double[GAINS_DB.length];
+                for (int b = 0; b < db.length; b++) {
+                    db[b] = (block == 12) ? 0.0 : GAINS_DB[b] / (block - 1);
+                }
+                perBand.setGainsDb(db);
+                combined.setGainsDb(db);
+            }
+
+            float[] a = new float[512];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = (rnd.nextFloat() * 2f - 1f) * 0.25f;
+            }
+            float[] b = a.clone();
+
+            perBand.processInPlace(a, a.length);
+            combined.processInPlace(b, b.length);
+
+            for (int i = 0; i < a.length; i++) {
+                assertEquals(a[i], b[i], 1e-4, "bloco=" + block + " i=" + i);
+            }
+        }
+    }
+
+    @Test
+    void testModeSwitchMidStreamKeepsFilterHistory() {
+        // o modo que não está em uso mantém o histórico: trocar de modo no
+        // meio do fluxo dá o mesmo que ficar sempre num só
+        EqualizerEngine reference = new EqualizerEngine();
+        EqualizerEngine switching = new EqualizerEngine();
+        reference.setGainsDb(GAINS_DB);
+        switching.setGainsDb(GAINS_DB);
+
+        Random rnd = new Random(13);
+        for (int block = 0; block < 15; block++) {
+            if (block == 5 || block == 10) {
+                switching.setCombinedKernel(block == 5);
+            }
+
+            float[] a = new float[512];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = (rnd.nextFloat() * 2f - 1f) * 0.25f;
+            }
+            float[] b = a.clone();
+
+            reference.processInPlace(a, a.length);
+            switching.processInPlace(b, b.length);
+
+            for (int i = 0; i < a.length; i++) {
+                assertEquals(a[i], b[i], 1e-4, "bloco=" + block + " i=" + i);
+            }
+        }
+    }
+
+    @Test
+    void testStereoChannelsDoNotShareHistory() {
+        // L = ruído, R = senoide: cada canal do engine estéreo deve sair
+        // igual ao mesmo sinal passado sozinho por um engine mono
+        for (boolean combinedMode : new boolean[] { false, true }) {
+            EqualizerEngine stereo = new EqualizerEngine(2);
+            EqualizerEngine left = new EqualizerEngine(1);
+            EqualizerEngine right = new EqualizerEngine(1);
+            for (EqualizerEngine e : new EqualizerEngine[] { stereo, left, right }) {
+                e.setCombinedKernel(combinedMode);
+                e.setGainsDb(GAINS_DB);
+            }
+
+            Random rnd = new Random(11);
+            int frames = 512;
+            long n = 0;
+            for (int block = 0; block < 10; block++) {
+                float[] l = new float[frames];
+                float[] r = new float[frames];
+                float[] lr = new float[2 * frames];
+                for (int i = 0; i < frames; i++, n++) {
+                    l[i] = (rnd.nextFloat() * 2f - 1f) * 0.25f;
+                    r[i] = (float) (0.25 * Math.sin(2 * Math.PI * 330.0 * n / 44100.0));
+                    lr[2 * i] = l[i];
+                    lr[2 * i + 1] = r[i];
+                }
+
+                stereo.processInPlace(lr, lr.length);
+                left.processInPlace(l, l.length);
+                right.processInPlace(r, r.length);
+
+                for (int i = 0; i < frames; i++) {
+                    String at = "combined=" + combinedMode + " bloco=" + block + " i=" + i;
+                    assertEquals(l[i], lr[2 * i], 1e-6, "L " + at);
+                    assertEquals(r[i], lr[2 * i + 1], 1e-6, "R " + at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testProcessInPlaceDoesNotAllocateAfterWarmUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        for (boolean combinedMode : new boolean[] { false, true }) {
+            EqualizerEngine engine = new EqualizerEngine();
+            engine.setCombinedKernel(combinedMode);
+            for (int b = 0; b < GAINS_DB.length; b++) {
+                engine.setBandGainDb(b, GAINS_DB[b]);
+            }
+
+            float[] block = new float[2048];
+            Random rnd = new Random(3);
+            for (int i = 0; i < block.length; i++) {
+                block[i] = (rnd.nextFloat() * 2f - 1f) * 0.25f;
+            }
+
+            // aquecimento (JIT + crescimento dos buffers)
+            for (int i = 0; i < 2_000; i++) {
+                engine.processInPlace(block, block.length);
+            }
+
+            long tid = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < 1_000; i++) {
+                engine.processInPlace(block, block.length);
+            }
+            long after = threads.getThreadAllocatedBytes(tid);
+
+            // a própria consulta ao MXBean pode custar alguns bytes; nenhum buffer de bloco cabe nisso
+            assertEquals(0L, (after - before) / 1_000, "bytes/bloco (combined=" + combinedMode + ")");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package eqaudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FftPlanTest {
+
+    @Test
+    void testComplexAndRealTransformsMatchDft() {
+        Random rnd = new Random(11);
+        // log2(n) par e ímpar: com e sem o estágio radix-2 inicial
+        for (int n : new int[] { 2, 4, 8, 32, 128, 512 }) {
+            double[] xr = new double[n];
+            double[] xi = new double[n];
+            for (int i = 0; i < n; i++) {
+                xr[i] = rnd.nextDouble() * 2.0 - 1.0;
+                xi[i] = rnd.nextDouble() * 2.0 - 1.0;
+            }
+
+            double[] yr = xr.clone();
+            double[] yi = xi.clone();
+            new FftPlan(n).transform(yr, yi);
+
+            double[] realRe = new double[n / 2 + 1];
+            double[] realIm = new double[n / 2 + 1];
+            new RealFft(n).forward(xr, realRe, realIm);
+
+            for (int k = 0; k < n; k++) {
+                double sr = 0.0, si = 0.0, rr = 0.0, ri = 0.0;
+                for (int t = 0; t < n; t++) {
+                    double theta = -2.0 * Math.PI * ((long) k * t % n) / n;
+                    double c = Math.cos(theta);
+                    double s = Math.sin(theta);
+                    sr += xr[t] * c - xi[t] * s;
+                    si += xr[t] * s + xi[t] * c;
+                    rr += xr[t] * c;
+                    ri += xr[t] * s;
+                }
+                assertEquals(sr, yr[k], 1e-9, "re n=" + n + " k=" + k);
+                assertEquals(si, yi[k], 1e-9, "im n=" + n + " k=" + k);
+                if (k <= n / 2) {
+                    assertEquals(rr, realRe[k], 1e-9, "real re n=" + n + " k=" + k);
+                    assertEquals(ri, realIm[k], 1e-9, "real im n=" + n + " k=" + k);
+                }
+            }
+        }
+    }
+}
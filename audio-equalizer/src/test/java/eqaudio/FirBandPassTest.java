@@ -0,0 +1,73 @@
+package eqaudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FirBandPassTest {
+
+    @Test
+    void testAutomaticModeSelection() {
+        int kBelow = (FirBandPass.FFT_MIN_TAPS - 2) / 2;  // 2K+1 < FFT_MIN_TAPS
+        int kAbove = FirBandPass.FFT_MIN_TAPS / 2;        // 2K+1 > FFT_MIN_TAPS
+        assertFalse(new FirBandPass(44100.0, 215.0, 665.0, kBelow).isFftMode());
+        assertTrue(new FirBandPass(44100.0, 215.0, 665.0, kAbove).isFftMode());
+    }
+
+    @Test
+    void testFftMatchesDirectForm() {
+        for (int K : new int[] { 16, 64, 256 }) {
+            FirBandPass direct = new FirBandPass(44100.0, 215.0, 665.0, K, false);
+            FirBandPass fft = new FirBandPass(44100.0, 215.0, 665.0, K, true);
+
+            Random rnd = new Random(42);
+            // blocos de tamanhos variados (menores e maiores que o hop da FFT)
+            int[] sizes = { 1, 7, 2048, 300, 5000, 64, 1024 };
+
+            for (int size : sizes) {
+                float[] a = new float[size];
+                for (int i = 0; i < size; i++) {
+                    a[i] = rnd.nextFloat() * 2f - 1f;
+                }
+                float[] b = a.clone();
+
+                direct.processBlock(a, size);
+                fft.processBlock(b, size);
+
+                for (int i = 0; i < size; i++) {
+                    assertEquals(a[i], b[i], 1e-5, "K=" + K + " bloco=" + size + " i=" + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testInterleavedChannelsAreFilteredIndependently() {
+        MultiChannelFir stereo = new MultiChannelFir(2, 44100.0, 215.0, 665.0, 64);
+        FirBandPass mono = new FirBandPass(44100.0, 215.0, 665.0, 64);
+
+        Random rnd = new Random(11);
+        for (int block = 0; block < 4; block++) {
+            int frames = 1024;
+            float[] left = new float[frames];
+            float[] interleaved = new float[2 * frames];
+            for (int i = 0; i < frames; i++) {
+                left[i] = rnd.nextFloat() * 2f - 1f;
+                interleaved[2 * i] = left[i];   // L = ruído
+                interleaved[2 * i + 1] = 0f;    // R = silêncio
+            }
+
+            mono.processBlock(left, frames);
+            stereo.processInterleaved(interleaved, interleaved.length);
+
+            for (int i = 0; i < frames; i++) {
+                assertEquals(left[i], interleaved[2 * i], 0.0, "L i=" + i);
+                assertEquals(0f, interleaved[2 * i + 1], 0.0, "R i=" + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package eqaudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GainRecordTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        int[] bands = { 0, 2, 4 };
+        float[] gains = { 6.5f, -3.0f, 12.0f };
+        long seq = 1_700_000_000_000_123L;
+
+        // precedido de lixo: a leitura é absoluta a partir de off
+        byte[] record = GainRecord.encode(bands, gains, seq);
+        ByteBuffer in = ByteBuffer.allocate(5 + record.length);
+        in.put(new byte[5]).put(record);
+        int off = 5;
+
+        assertEquals(GainRecord.size(3), record.length);
+        assertEquals(GainRecord.MAGIC, in.get(off));
+        assertEquals(3, GainRecord.count(in, off));
+        assertEquals(record.length, GainRecord.size(in, off));
+        assertEquals(seq, GainRecord.seq(in, off));
+        for (int i = 0; i < bands.length; i++) {
+            assertEquals(bands[i], GainRecord.band(in, off, i));
+            assertEquals(gains[i], GainRecord.gainDb(in, off, i));
+        }
+
+        ByteBuffer single = ByteBuffer.wrap(GainRecord.encode(4, -7.25f, 42L));
+        assertEquals(GainRecord.size(1), single.capacity());
+        assertEquals(1, GainRecord.count(single, 0));
+        assertEquals(4, GainRecord.band(single, 0, 0));
+        assertEquals(-7.25f, GainRecord.gainDb(single, 0, 0));
+        assertEquals(42L, GainRecord.seq(single, 0));
+    }
+}
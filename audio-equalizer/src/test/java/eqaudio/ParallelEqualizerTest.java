@@ -0,0 +1,57 @@
+package eqaudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ParallelEqualizerTest {
+
+    private static final double[] GAINS_DB = { 6.0, -3.0, 0.0, 9.0, -12.0 };
+    private static final int BLOCK_FRAMES = 1024;
+
+    @Test
+    void testParallelOutputIsBitIdenticalToSerial() {
+        // ~5 s estéreo, terminando num bloco parcial
+        float[] source = new float[2 * (215 * BLOCK_FRAMES + 333)];
+        Random rnd = new Random(3);
+        for (int i = 0; i < source.length; i++) {
+            source[i] = (rnd.nextFloat() * 2f - 1f) * 0.5f;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean combined : new boolean[] { false, true }) {
+                Supplier<EqualizerEngine> engines = () -> {
+                    EqualizerEngine e = new EqualizerEngine();
+                    e.setCombinedKernel(combined);
+                    e.setGainsDb(GAINS_DB);
+                    return e;
+                };
+
+                float[] serial = source.clone();
+                EqualizerEngine engine = engines.get();
+                float[] block = new float[2 * BLOCK_FRAMES];
+                for (int pos = 0; pos < serial.length; pos += block.length) {
+                    int n = Math.min(block.length, serial.length - pos);
+                    System.arraycopy(serial, pos, block, 0, n);
+                    engine.processInPlace(block, n);
+                    System.arraycopy(block, 0, serial, pos, n);
+                }
+
+                // segmentos de 3 blocos: dezenas de emendas para conferir
+                float[] parallel = source.clone();
+                ParallelEqualizer eq = new ParallelEqualizer(engines, 2, BLOCK_FRAMES, pool);
+                eq.setSegmentBlocks(3);
+                eq.process(parallel, parallel.length);
+
+                assertArrayEquals(serial, parallel, "combinedKernel=" + combined);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
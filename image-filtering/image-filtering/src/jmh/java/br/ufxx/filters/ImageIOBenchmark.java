@@ -0,0 +1,105 @@
+package br.ufxx.filters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão BufferedImage (cinza 8 bits) ↔ ImageBuffer, imagem size × size.
+ * perPixel* é o caminho anterior (getRGB/setRGB por pixel, com conversão de
+ * ColorModel); raster* lê e grava o byte[] do DataBuffer com o mesmo
+ * resultado, numa thread (serial) ou em faixas de linhas no commonPool
+ * (parallel).
+ *
+ * Fica fora do build normal (src/jmh/java, perfil jmh):
+ *
+ *   mvn -Pjmh test-compile exec:exec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageIOBenchmark {
+
+    @Param({"1024", "4096"})
+    public int size;
+
+    private BufferedImage image;
+    private ImageBuffer buffer;
+    private ForkJoinPool serial;
+
+    @Setup
+    public void setup() {
+        image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_GRAY);
+        new Random(6).nextBytes(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        serial = new ForkJoinPool(1);
+        buffer = ImageIOUtils.toBuffer(image, serial);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serial.shutdown();
+    }
+
+    @Benchmark
+    public ImageBuffer readPerPixel() {
+        ImageBuffer data = new ImageBuffer(size, size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                data.set(x, y, image.getRGB(x, y) & 0xFF);
+            }
+        }
+        return data;
+    }
+
+    @Benchmark
+    public ImageBuffer readRasterSerial() {
+        return ImageIOUtils.toBuffer(image, serial);
+    }
+
+    @Benchmark
+    public ImageBuffer readRasterParallel() {
+        return ImageIOUtils.toBuffer(image, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public BufferedImage writePerPixel() {
+        BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = Math.round(buffer.get(x, y));
+                if (v < 0) v = 0;
+                if (v > 255) v = 255;
+                img.setRGB(x, y, (v << 16) | (v << 8) | v);
+            }
+        }
+        return img;
+    }
+
+    @Benchmark
+    public BufferedImage writeRasterSerial() {
+        return ImageIOUtils.toGrayImage(buffer, serial);
+    }
+
+    @Benchmark
+    public BufferedImage writeRasterParallel() {
+        return ImageIOUtils.toGrayImage(buffer, ForkJoinPool.commonPool());
+    }
+}
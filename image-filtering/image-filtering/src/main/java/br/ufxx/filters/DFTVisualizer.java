@@ -1,108 +1,84 @@
 package br.ufxx.filters;
 
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
-
+/**
+ * Imagens do espectro e das máscaras para o relatório.
+ *
+ * Recebem a meia DFT de {@link FrequencyFilters} (h linhas de w/2+1 bins,
+ * sem centralizar) e completam a outra metade pela simetria de imagem
+ * real, |X[k1][k2]| = |X[-k1][-k2]|. As imagens ficam na ordem dos bins
+ * (frequência 0 nos cantos).
+ */
 public class DFTVisualizer {
 
     /**
-     * Gera imagem da magnitude da DFT em escala log (dados no formato JTransforms: [h][2*w]).
+     * Gera imagem da magnitude da DFT em escala log (meia DFT: h linhas de
+     * w/2+1 valores complexos, real e imag intercalados).
      */
-    public static void saveMagnitudeSpectrum(double[][] fft, String path) throws Exception {
-        int h = fft.length;
-        int w = fft[0].length / 2;
-
-        double[][] mag = new double[h][w];
+    public static void saveMagnitudeSpectrum(double[] half, int h, int w, String path) throws Exception {
+        int bins = FrequencyFilters.halfWidth(w);
+        ImageBuffer mag = new ImageBuffer(w, h);
+        float[] m = mag.array();
         double max = Double.NEGATIVE_INFINITY;
 
         for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                double re = fft[y][2 * x];
-                double im = fft[y][2 * x + 1];
-                double m = Math.sqrt(re * re + im * im);
-                mag[y][x] = m;
-                if (m > max) max = m;
+            for (int x = 0; x < bins; x++) {
+                int i = 2 * (y * bins + x);
+                double re = half[i];
+                double im = half[i + 1];
+                double v = Math.sqrt(re * re + im * im);
+                m[y * w + x] = (float) v;
+                if (v > max) max = v;
             }
         }
+        mirrorHalf(mag, bins);
 
-        double[][] logImg = new double[h][w];
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                double v = Math.log(1 + mag[y][x]) / Math.log(1 + max);
-                logImg[y][x] = v * 255.0;
-            }
+        // escala log no próprio buffer de magnitudes
+        double scale = 255.0 / Math.log(1 + max);
+        for (int i = 0; i < h * w; i++) {
+            m[i] = (float) (Math.log(1 + m[i]) * scale);
         }
 
-        double[][] shifted = fftShift(logImg);
-        saveAsGray(shifted, path);
+        ImageIOUtils.saveGray(mag, path);
     }
 
     /**
-     * Salva uma máscara (filtro ideal em frequência) como imagem (0–1 → 0–255),
-     * já com fftshift para centralizar.
+     * Salva uma máscara (filtro ideal em frequência, meia DFT h × (w/2+1))
+     * como imagem w × h (0–1 → 0–255).
      */
-    public static void saveMask(double[][] mask, String path) throws Exception {
-        double[][] shifted = fftShift(mask);
+    public static void saveMask(ImageBuffer half, int w, String path) throws Exception {
+        int h = half.height();
+        int bins = half.width();
+        ImageBuffer full = new ImageBuffer(w, h);
+        float[] data = full.array();
 
-        int h = shifted.length;
-        int w = shifted[0].length;
         double max = 0.0;
         for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                if (shifted[y][x] > max) max = shifted[y][x];
+            for (int x = 0; x < bins; x++) {
+                float v = half.get(x, y);
+                data[y * w + x] = v;
+                if (v > max) max = v;
             }
         }
+        mirrorHalf(full, bins);
         if (max == 0) max = 1;
 
-        double[][] img = new double[h][w];
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                img[y][x] = shifted[y][x] / max * 255.0;
-            }
+        for (int i = 0; i < h * w; i++) {
+            data[i] = (float) (data[i] / max * 255.0);
         }
 
-        saveAsGray(img, path);
-    }
-
-    /** fftshift: troca quadrantes para centralizar a baixa frequência. */
-    private static double[][] fftShift(double[][] img) {
-        int h = img.length;
-        int w = img[0].length;
-        double[][] out = new double[h][w];
-
-        int h2 = h / 2;
-        int w2 = w / 2;
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int yy = (y + h2) % h;
-                int xx = (x + w2) % w;
-                out[yy][xx] = img[y][x];
-            }
-        }
-        return out;
+        ImageIOUtils.saveGray(full, path);
     }
 
-    private static void saveAsGray(double[][] data, String path) throws Exception {
-        int h = data.length;
-        int w = data[0].length;
-
-        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
-
+    /** Colunas [bins, w) a partir das [0, bins): v[y][x] = v[-y][-x]. */
+    private static void mirrorHalf(ImageBuffer img, int bins) {
+        int h = img.height();
+        int w = img.width();
         for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int v = (int)Math.round(data[y][x]);
-                if (v < 0) v = 0;
-                if (v > 255) v = 255;
-                int rgb = (v << 16) | (v << 8) | v;
-                img.setRGB(x, y, rgb);
+            int ym = (h - y) % h;
+            for (int x = bins; x < w; x++) {
+                img.set(x, y, img.get(w - x, ym));
             }
         }
-
-        File out = new File(path);
-        out.getParentFile().mkdirs();
-        ImageIO.write(img, "png", out);
     }
 }
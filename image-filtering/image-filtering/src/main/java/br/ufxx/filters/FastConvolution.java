@@ -0,0 +1,379 @@
+package br.ufxx.filters;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Convolução 2D rápida sobre {@link ImageBuffer}, com o mesmo resultado de
+ * {@link SpatialFilters#convolve} (borda por replicação).
+ *
+ * {@link #convolve(ImageBuffer, double[][], ForkJoinPool)} escolhe o caminho
+ * pela forma do kernel ({@link #classify}):
+ * - caixa (meanKernel): somas deslizantes na horizontal e na vertical,
+ *   custo por pixel independente do tamanho (31×31 custa como 3×3);
+ * - δ - caixa (highFromLow de meanKernel): img - caixa(img), sem segunda
+ *   convolução;
+ * - separável (posto 1): um passe horizontal e um vertical, kh+kw
+ *   multiplicações por pixel em vez de kh·kw;
+ * - geral: o caminho direto abaixo.
+ *
+ * Caminho direto:
+ * - Interior sem desvios: nas linhas e colunas onde o kernel cabe inteiro
+ *   não há clamp; cada termo do kernel vira um laço "acc[x] += k * linha[x]"
+ *   sobre um trecho de linha (vetorizável pela JIT).
+ * - Blocos de colunas: o interior é processado em faixas de
+ *   {@value #TILE_WIDTH} pixels, para que o acumulador e os trechos das kh
+ *   linhas de entrada fiquem no cache enquanto os kh·kw termos passam.
+ * - Bordas: mesmo cálculo da referência (com clamp), só nos pixels de borda.
+ * A soma de cada pixel é feita em double, na mesma ordem da referência
+ * (linha do kernel por fora, coluna por dentro, partindo de 0.0), e só o
+ * total é arredondado para float: o caminho direto é bit a bit igual a
+ * SpatialFilters.convolve (sobre os mesmos valores) seguido de (float); os
+ * outros diferem só no arredondamento.
+ *
+ * A entrada pode ser uma view (stride != width). Todos os caminhos
+ * processam faixas de linhas em paralelo num ForkJoinPool.
+ */
+public final class FastConvolution {
+
+    static final int TILE_WIDTH = 512;
+
+    private FastConvolution() {
+    }
+
+    public static ImageBuffer convolve(ImageBuffer img, double[][] kernel) {
+        return convolve(img, kernel, ForkJoinPool.commonPool());
+    }
+
+    public static ImageBuffer convolve(ImageBuffer img, double[][] kernel, ForkJoinPool pool) {
+        switch (classify(kernel)) {
+            case BOX:
+                return box(img, kernel, false, pool);
+            case DELTA_MINUS_BOX:
+                return box(img, kernel, true, pool);
+            case SEPARABLE:
+                return separable(img, kernel, pool);
+            default:
+                return direct(img, kernel, pool);
+        }
+    }
+
+    /** Sempre o caminho direto (kh·kw multiplicações por pixel). */
+    public static ImageBuffer direct(ImageBuffer img, double[][] kernel, ForkJoinPool pool) {
+        ImageBuffer out = new ImageBuffer(img.width(), img.height());
+        RowBands.forEach(pool, img.height(), (y0, y1) -> convolveRows(img, kernel, out, y0, y1));
+        return out;
+    }
+
+    // ===================== análise do kernel =====================
+
+    /** Formas de kernel com caminho próprio. */
+    public enum Kind {
+        /** Sem estrutura: kh·kw multiplicações por pixel. */
+        GENERAL,
+        /** Posto 1 (k[j][i] = col[j]·row[i]): dois passes 1-D, kh+kw por pixel. */
+        SEPARABLE,
+        /** Todos os coeficientes iguais (meanKernel): somas deslizantes, O(1) por pixel. */
+        BOX,
+        /** δ - caixa (highFromLow de meanKernel): img - caixa(img). */
+        DELTA_MINUS_BOX
+    }
+
+    public static Kind classify(double[][] kernel) {
+        int kh = kernel.length;
+        int kw = kernel[0].length;
+        int cy = kh / 2;
+        int cx = kw / 2;
+
+        // caixa e δ-caixa: comparação exata (é o que meanKernel/highFromLow geram)
+        double v = kernel[0][0];
+        double off = offCenter(kernel);
+        boolean box = true;
+        boolean deltaBox = kh * kw > 1;
+        for (int j = 0; j < kh; j++) {
+            for (int i = 0; i < kw; i++) {
+                double k = kernel[j][i];
+                box &= (k == v);
+                deltaBox &= (j == cy && i == cx) ? (k == 1.0 + off) : (k == off);
+            }
+        }
+        if (box) return Kind.BOX;
+        if (deltaBox) return Kind.DELTA_MINUS_BOX;
+
+        return (kh > 1 && kw > 1 && separate(kernel) != null) ? Kind.SEPARABLE : Kind.GENERAL;
+    }
+
+    /** Um coeficiente fora do centro (o próprio centro se o kernel for 1×1). */
+    private static double offCenter(double[][] kernel) {
+        int kh = kernel.length;
+        int kw = kernel[0].length;
+        return (kh > 1) ? kernel[(kh / 2 + 1) % kh][kw / 2] : kernel[0][(kw / 2 + 1) % kw];
+    }
+
+    /**
+     * Decompõe um kernel de posto 1 em {col, row} (k[j][i] = col[j]·row[i]),
+     * ou null se não for separável (tolerância relativa de 1e-12).
+     */
+    static double[][] separate(double[][] kernel) {
+        int kh = kernel.length;
+        int kw = kernel[0].length;
+
+        // pivô: maior |k|
+        int pj = 0, pi = 0;
+        double max = 0.0;
+        for (int j = 0; j < kh; j++) {
+            for (int i = 0; i < kw; i++) {
+                if (Math.abs(kernel[j][i]) > max) {
+                    max = Math.abs(kernel[j][i]);
+                    pj = j;
+                    pi = i;
+                }
+            }
+        }
+        if (max == 0.0) return null;
+
+        double[] col = new double[kh];
+        double[] row = new double[kw];
+        for (int j = 0; j < kh; j++) {
+            col[j] = kernel[j][pi];
+        }
+        for (int i = 0; i < kw; i++) {
+            row[i] = kernel[pj][i] / kernel[pj][pi];
+        }
+
+        double tol = 1e-12 * max;
+        for (int j = 0; j < kh; j++) {
+            for (int i = 0; i < kw; i++) {
+                if (Math.abs(kernel[j][i] - col[j] * row[i]) > tol) {
+                    return null;
+                }
+            }
+        }
+        return new double[][] { col, row };
+    }
+
+    // ===================== separável =====================
+
+    private static ImageBuffer separable(ImageBuffer img, double[][] kernel, ForkJoinPool pool) {
+        double[][] parts = separate(kernel);
+        double[] col = parts[0];
+        double[] row = parts[1];
+        int h = img.height();
+        int w = img.width();
+        int cy = col.length / 2;
+        float[] src = img.array();
+
+        // passe horizontal (por linha), depois vertical (linhas inteiras
+        // da imagem intermediária: o clamp é só no índice da linha)
+        ImageBuffer tmp = new ImageBuffer(w, h);
+        float[] t = tmp.array();
+        RowBands.forEach(pool, h, (y0, y1) -> {
+            double[] acc = new double[w];
+            for (int y = y0; y < y1; y++) {
+                horizontal(src, img.index(0, y), w, row, acc);
+                store(acc, t, tmp.index(0, y), w);
+            }
+        });
+
+        ImageBuffer out = new ImageBuffer(w, h);
+        float[] dst = out.array();
+        RowBands.forEach(pool, h, (y0, y1) -> {
+            double[] acc = new double[w];
+            for (int y = y0; y < y1; y++) {
+                Arrays.fill(acc, 0.0);
+                for (int j = 0; j < col.length; j++) {
+                    int s = tmp.index(0, clamp(y + j - cy, h));
+                    double c = col[j];
+                    for (int x = 0; x < w; x++) {
+                        acc[x] += t[s + x] * c;
+                    }
+                }
+                store(acc, dst, out.index(0, y), w);
+            }
+        });
+        return out;
+    }
+
+    /** acc = linha src[s .. s+w) * k (1-D, borda replicada). */
+    private static void horizontal(float[] src, int s, int w, double[] k, double[] acc) {
+        int kw = k.length;
+        int cx = kw / 2;
+        int xa = Math.min(cx, w);
+        int xb = Math.max(xa, w - (kw - 1 - cx));
+
+        Arrays.fill(acc, xa, xb, 0.0);
+        for (int i = 0; i < kw; i++) {
+            double c = k[i];
+            int off = s + i - cx;
+            for (int x = xa; x < xb; x++) {
+                acc[x] += src[x + off] * c;
+            }
+        }
+        for (int x = 0; x < xa; x++) {
+            acc[x] = borderSum(src, s, w, k, x);
+        }
+        for (int x = xb; x < w; x++) {
+            acc[x] = borderSum(src, s, w, k, x);
+        }
+    }
+
+    private static double borderSum(float[] src, int s, int w, double[] k, int x) {
+        int cx = k.length / 2;
+        double sum = 0.0;
+        for (int i = 0; i < k.length; i++) {
+            sum += src[s + clamp(x + i - cx, w)] * k[i];
+        }
+        return sum;
+    }
+
+    // ===================== caixa =====================
+
+    /**
+     * Média kh×kw por somas deslizantes: horizontal em cada linha, depois
+     * vertical sobre linhas inteiras (um vetor de somas por faixa). Custo
+     * por pixel independente do tamanho do kernel. subtract: img - caixa.
+     */
+    private static ImageBuffer box(ImageBuffer img, double[][] kernel, boolean subtract, ForkJoinPool pool) {
+        int h = img.height();
+        int w = img.width();
+        int kh = kernel.length;
+        int kw = kernel[0].length;
+        int cy = kh / 2;
+        int cx = kw / 2;
+        // caixa: todos iguais a v; δ-caixa: fora do centro = -v
+        double v = subtract ? -offCenter(kernel) : kernel[0][0];
+        float[] src = img.array();
+
+        // somas horizontais (exatas em float para imagens de 8/16 bits)
+        ImageBuffer rows = new ImageBuffer(w, h);
+        float[] r = rows.array();
+        RowBands.forEach(pool, h, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int s = img.index(0, y);
+                int d = rows.index(0, y);
+                double sum = 0.0;
+                for (int i = 0; i < kw; i++) {
+                    sum += src[s + clamp(i - cx, w)];
+                }
+                for (int x = 0; x < w; x++) {
+                    r[d + x] = (float) sum;
+                    sum += src[s + clamp(x + 1 - cx + kw - 1, w)] - src[s + clamp(x - cx, w)];
+                }
+            }
+        });
+
+        ImageBuffer out = new ImageBuffer(w, h);
+        float[] dst = out.array();
+        RowBands.forEach(pool, h, (y0, y1) -> {
+            double[] sum = new double[w];
+            for (int j = 0; j < kh; j++) {
+                int s = rows.index(0, clamp(y0 + j - cy, h));
+                for (int x = 0; x < w; x++) {
+                    sum[x] += r[s + x];
+                }
+            }
+            for (int y = y0; y < y1; y++) {
+                int d = out.index(0, y);
+                if (subtract) {
+                    int o = img.index(0, y);
+                    for (int x = 0; x < w; x++) {
+                        dst[d + x] = (float) (src[o + x] - v * sum[x]);
+                    }
+                } else {
+                    for (int x = 0; x < w; x++) {
+                        dst[d + x] = (float) (v * sum[x]);
+                    }
+                }
+                int in = rows.index(0, clamp(y + 1 - cy + kh - 1, h));
+                int outgoing = rows.index(0, clamp(y - cy, h));
+                for (int x = 0; x < w; x++) {
+                    sum[x] += r[in + x] - r[outgoing + x];
+                }
+            }
+        });
+        return out;
+    }
+
+    // ===================== direto =====================
+
+    private static void convolveRows(ImageBuffer img, double[][] kernel, ImageBuffer out, int y0, int y1) {
+        int h = img.height();
+        int w = img.width();
+        int kh = kernel.length;
+        int kw = kernel[0].length;
+        int cy = kh / 2;
+        int cx = kw / 2;
+        float[] src = img.array();
+        float[] dst = out.array();
+        double[] acc = new double[TILE_WIDTH];
+
+        // interior: x em [xa, xb) e y em [ya, yb) não precisam de clamp
+        int xa = Math.min(cx, w);
+        int xb = Math.max(xa, w - (kw - 1 - cx));
+        int ya = cy;
+        int yb = h - (kh - 1 - cy);
+
+        for (int y = y0; y < y1; y++) {
+            if (y < ya || y >= yb) {
+                borderSpan(img, kernel, out, y, 0, w);
+                continue;
+            }
+
+            borderSpan(img, kernel, out, y, 0, xa);
+            for (int t0 = xa; t0 < xb; t0 += TILE_WIDTH) {
+                int n = Math.min(xb, t0 + TILE_WIDTH) - t0;
+                Arrays.fill(acc, 0, n, 0.0);
+                for (int j = 0; j < kh; j++) {
+                    int s = img.index(t0 - cx, y + j - cy);
+                    double[] krow = kernel[j];
+                    for (int i = 0; i < kw; i++) {
+                        double k = krow[i];
+                        int off = s + i;
+                        for (int x = 0; x < n; x++) {
+                            acc[x] += src[off + x] * k;
+                        }
+                    }
+                }
+                store(acc, dst, out.index(t0, y), n);
+            }
+            borderSpan(img, kernel, out, y, xb, w);
+        }
+    }
+
+    /** Pixels [x0, x1) da linha y com clamp (igual à referência). */
+    private static void borderSpan(ImageBuffer img, double[][] kernel, ImageBuffer out, int y, int x0, int x1) {
+        int h = img.height();
+        int w = img.width();
+        int kh = kernel.length;
+        int kw = kernel[0].length;
+        int cy = kh / 2;
+        int cx = kw / 2;
+        float[] src = img.array();
+
+        for (int x = x0; x < x1; x++) {
+            double sum = 0.0;
+            for (int j = 0; j < kh; j++) {
+                int s = img.index(0, Math.min(h - 1, Math.max(0, y + j - cy)));
+                double[] krow = kernel[j];
+                for (int i = 0; i < kw; i++) {
+                    int xx = Math.min(w - 1, Math.max(0, x + i - cx));
+                    sum += src[s + xx] * krow[i];
+                }
+            }
+            out.set(x, y, (float) sum);
+        }
+    }
+
+    // ===================== infraestrutura =====================
+
+    /** dst[d .. d+n) = (float) acc[0 .. n). */
+    private static void store(double[] acc, float[] dst, int d, int n) {
+        for (int x = 0; x < n; x++) {
+            dst[d + x] = (float) acc[x];
+        }
+    }
+
+    private static int clamp(int i, int n) {
+        return Math.min(n - 1, Math.max(0, i));
+    }
+}
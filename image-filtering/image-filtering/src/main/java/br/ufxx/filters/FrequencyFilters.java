@@ -1,174 +1,307 @@
 package br.ufxx.filters;
 
-import org.jtransforms.fft.DoubleFFT_2D;
-
+import org.jtransforms.fft.DoubleFFT_1D;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Filtros ideais no domínio da DFT.
+ *
+ * A imagem é real, então a DFT tem simetria hermitiana
+ * (X[-k1][-k2] = conj X[k1][k2]) e só a meia DFT é calculada e guardada:
+ * h linhas de w/2+1 bins complexos (k2 = 0 .. w/2), na ordem natural dos
+ * bins (sem centralizar). A FFT 2D é feita em dois passos com JTransforms:
+ * FFT real de cada linha (DoubleFFT_1D.realForward) e FFT complexa de
+ * cada uma das w/2+1 colunas. Metade da memória e ~metade das contas da
+ * FFT complexa de h×w com parte imaginária zerada, para qualquer h e w.
+ *
+ * As máscaras são simétricas (dependem de |u| e |v|) e são construídas e
+ * aplicadas direto na meia DFT; a "centralização" é só o índice: o bin k
+ * tem frequência k se k <= n/2 e k - n caso contrário.
+ *
+ * Os métodos estáticos fazem uma FFT direta por chamada; para vários
+ * filtros sobre a mesma imagem use {@link FrequencySession}, que calcula o
+ * espectro uma vez e guarda as máscaras que usa. Em ambos os casos os
+ * planos DoubleFFT_1D (por tamanho) vêm de um cache LRU compartilhado,
+ * então não são recriados a cada filtro.
+ */
 public class FrequencyFilters {
 
+    /** Forma da máscara passa-baixa ideal. */
+    public enum MaskType {
+        /** Disco de raio wc/π (frequências normalizadas). */
+        RADIAL,
+        /** Faixa |u| <= wc/π, só na direção horizontal. */
+        HORIZONTAL
+    }
+
     // ========= FUNÇÕES PÚBLICAS =========
 
     /** Passa-baixa ideal 2D (radial), corte wc em radianos (0..π). */
-    public static double[][] lowPass2D(double[][] img,
+    public static ImageBuffer lowPass2D(ImageBuffer img,
                                        double wc,
                                        String namePrefix) throws Exception {
-
-        int h = img.length;
-        int w = img[0].length;
-
-        // FFT (com centralização via (-1)^{x+y})
-        double[][] fft = forwardFFT(img);
-
-        // máscara passa-baixa radial normalizada (centrada)
-        double[][] mask = buildIdealLowPassRadialMask(h, w, wc);
-
-        // salvar máscara para o relatório
-        DFTVisualizer.saveMask(mask, "out/" + namePrefix + "_filter_mask.png");
-
-        // aplicar máscara
-        applyMaskInPlace(fft, mask);
-
-        // salvar espectro filtrado
-        DFTVisualizer.saveMagnitudeSpectrum(
-                fft, "out/" + namePrefix + "_output_spectrum.png");
-
-        // voltar ao domínio espacial (desfazendo a centralização)
-        return inverseFFT(fft);
+        return new FrequencySession(img, false).lowPass(MaskType.RADIAL, wc, namePrefix);
     }
 
     /** Passa-alta ideal 2D: HP = original - LP + 128. */
-    public static double[][] highPass2D(double[][] img,
+    public static ImageBuffer highPass2D(ImageBuffer img,
                                         double wc,
                                         String namePrefix) throws Exception {
-
-        double[][] lp = lowPass2D(img, wc, namePrefix + "_LPbase");
-
-        int h = img.length;
-        int w = img[0].length;
-        double[][] hp = new double[h][w];
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                hp[y][x] = img[y][x] - lp[y][x] + 128.0;
-            }
-        }
-        return hp;
+        return new FrequencySession(img, false).highPass(MaskType.RADIAL, wc, namePrefix);
     }
 
     /** Passa-baixa ideal apenas na direção horizontal (corte wcX). */
-    public static double[][] lowPassHorizontal(double[][] img,
+    public static ImageBuffer lowPassHorizontal(ImageBuffer img,
                                                double wcX,
                                                String namePrefix) throws Exception {
-
-        int h = img.length;
-        int w = img[0].length;
-
-        // FFT com centralização
-        double[][] fft = forwardFFT(img);
-
-        double[][] mask = buildIdealLowPassHorizontalMask(h, w, wcX);
-
-        DFTVisualizer.saveMask(mask, "out/" + namePrefix + "_filter_mask.png");
-
-        applyMaskInPlace(fft, mask);
-
-        DFTVisualizer.saveMagnitudeSpectrum(
-                fft, "out/" + namePrefix + "_output_spectrum.png");
-
-        return inverseFFT(fft);
+        return new FrequencySession(img, false).lowPass(MaskType.HORIZONTAL, wcX, namePrefix);
     }
 
     /** Passa-alta apenas na direção horizontal: HP = original - LP + 128. */
-    public static double[][] highPassHorizontal(double[][] img,
+    public static ImageBuffer highPassHorizontal(ImageBuffer img,
                                                 double wcX,
                                                 String namePrefix) throws Exception {
+        return new FrequencySession(img, false).highPass(MaskType.HORIZONTAL, wcX, namePrefix);
+    }
 
-        double[][] lp = lowPassHorizontal(img, wcX, namePrefix + "_LPbase");
+    // ========= CACHE DE PLANOS =========
 
-        int h = img.length;
-        int w = img[0].length;
-        double[][] hp = new double[h][w];
+    private static final int MAX_PLANS = 8;
+    /** Colunas transformadas juntas (cópia para um bloco contíguo). */
+    private static final int COLUMN_BLOCK = 16;
 
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                hp[y][x] = img[y][x] - lp[y][x] + 128.0;
-            }
+    private static final Map<Integer, DoubleFFT_1D> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, DoubleFFT_1D> eldest) {
+            return size() > MAX_PLANS;
         }
-        return hp;
-    }
+    };
 
-    // ========= FUNÇÕES INTERNAS (FFT, MÁSCARAS, ETC.) =========
+    /**
+     * Plano da FFT 1D de n pontos. O DoubleFFT_1D só guarda tabelas depois
+     * de construído, então a mesma instância serve a várias chamadas (e
+     * threads) ao mesmo tempo.
+     */
+    static DoubleFFT_1D plan(int n) {
+        synchronized (plans) {
+            return plans.computeIfAbsent(n, DoubleFFT_1D::new);
+        }
+    }
 
     /**
-     * FFT 2D complexa usando JTransforms: retorna [h][2*w] (real, imag).
-     * Aplica centralização multiplicando a imagem de entrada por (-1)^{x+y}.
+     * Nova máscara passa-baixa ideal na meia DFT de h×w (h × (w/2+1) bins).
+     * Quem guarda as máscaras é a {@link FrequencySession}.
      */
-    private static double[][] forwardFFT(double[][] img) throws Exception {
-        int h = img.length;
-        int w = img[0].length;
+    static ImageBuffer buildMask(MaskType type, int h, int w, double wc) {
+        return (type == MaskType.RADIAL)
+                ? buildIdealLowPassRadialMask(h, w, wc)
+                : buildIdealLowPassHorizontalMask(h, w, wc);
+    }
+
+    // ========= FUNÇÕES INTERNAS (FFT, MÁSCARAS, ETC.) =========
+
+    /** Bins por linha da meia DFT de uma imagem de largura w. */
+    static int halfWidth(int w) {
+        return w / 2 + 1;
+    }
 
-        double[][] data = new double[h][2 * w];
+    /** out = original - LP + 128 (out pode ser o próprio lp). */
+    static ImageBuffer complement(ImageBuffer img, ImageBuffer lp, ImageBuffer out) {
+        int h = img.height();
+        int w = img.width();
+        float[] src = img.array();
+        float[] low = lp.array();
+        float[] dst = out.array();
 
         for (int y = 0; y < h; y++) {
+            int s = img.index(0, y);
+            int l = lp.index(0, y);
+            int d = out.index(0, y);
             for (int x = 0; x < w; x++) {
-                // fator de centralização: (-1)^(x+y)
-                double factor = ((x + y) % 2 == 0) ? 1.0 : -1.0;
-                data[y][2 * x]     = img[y][x] * factor; // real
-                data[y][2 * x + 1] = 0.0;                // imag
+                dst[d + x] = src[s + x] - low[l + x] + 128.0f;
             }
         }
+        return out;
+    }
 
-        DoubleFFT_2D fft = new DoubleFFT_2D(h, w);
-        fft.complexForward(data);
+    /**
+     * Meia DFT 2D da imagem: h linhas de w/2+1 valores complexos (real,
+     * imag intercalados) num único array, sem normalização.
+     */
+    static double[] forwardFFT(ImageBuffer img) {
+        int h = img.height();
+        int w = img.width();
+        int bins = halfWidth(w);
+        float[] src = img.array();
+        double[] half = new double[2 * h * bins];
+        DoubleFFT_1D rowFft = plan(w);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        // FFT real de cada linha -> bins 0 .. w/2
+        RowBands.forEach(pool, h, (y0, y1) -> {
+            double[] row = new double[w];
+            for (int y = y0; y < y1; y++) {
+                int s = img.index(0, y);
+                for (int x = 0; x < w; x++) {
+                    row[x] = src[s + x];
+                }
+                rowFft.realForward(row);
+                unpackRow(row, half, 2 * y * bins);
+            }
+        });
 
-        // opcional: espectro da entrada (já centrado)
-        DFTVisualizer.saveMagnitudeSpectrum(
-                data, "out/input_spectrum.png");
+        // FFT complexa de cada coluna
+        columns(half, h, bins, true, pool);
+        return half;
+    }
 
-        return data;
+    /**
+     * Inversa da meia DFT (normalizada por h·w), destruindo half: FFT
+     * inversa das colunas e depois FFT real inversa de cada linha.
+     */
+    static ImageBuffer inverseFFT(double[] half, int h, int w) {
+        int bins = halfWidth(w);
+        DoubleFFT_1D rowFft = plan(w);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        columns(half, h, bins, false, pool);
+
+        ImageBuffer out = new ImageBuffer(w, h);
+        float[] dst = out.array();
+        RowBands.forEach(pool, h, (y0, y1) -> {
+            double[] row = new double[w];
+            for (int y = y0; y < y1; y++) {
+                packRow(half, 2 * y * bins, row);
+                rowFft.realInverse(row, true);
+                int d = out.index(0, y);
+                for (int x = 0; x < w; x++) {
+                    dst[d + x] = (float) row[x];
+                }
+            }
+        });
+        return out;
     }
 
     /**
-     * Inversa da FFT 2D (complexInverse com normalização).
-     * Desfaz a centralização multiplicando a saída por (-1)^{x+y}.
+     * FFT (ou inversa normalizada) de tamanho h em cada coluna da meia DFT.
+     * As colunas são copiadas em blocos de COLUMN_BLOCK para arrays
+     * contíguos (leitura de linhas inteiras do bloco, não de 2 doubles
+     * espalhados por linha), transformadas e copiadas de volta.
      */
-    private static double[][] inverseFFT(double[][] fft) {
-        int h = fft.length;
-        int w2 = fft[0].length;
-        int w = w2 / 2;
+    private static void columns(double[] half, int h, int bins, boolean forward, ForkJoinPool pool) {
+        DoubleFFT_1D colFft = plan(h);
+
+        // as "linhas" de RowBands aqui são colunas da meia DFT
+        RowBands.forEach(pool, bins, (c0, c1) -> {
+            double[][] block = new double[COLUMN_BLOCK][2 * h];
+            for (int cb = c0; cb < c1; cb += COLUMN_BLOCK) {
+                int n = Math.min(COLUMN_BLOCK, c1 - cb);
+                for (int y = 0; y < h; y++) {
+                    int s = 2 * (y * bins + cb);
+                    for (int j = 0; j < n; j++) {
+                        block[j][2 * y] = half[s + 2 * j];
+                        block[j][2 * y + 1] = half[s + 2 * j + 1];
+                    }
+                }
+                for (int j = 0; j < n; j++) {
+                    if (forward) {
+                        colFft.complexForward(block[j]);
+                    } else {
+                        colFft.complexInverse(block[j], true);
+                    }
+                }
+                for (int y = 0; y < h; y++) {
+                    int s = 2 * (y * bins + cb);
+                    for (int j = 0; j < n; j++) {
+                        half[s + 2 * j] = block[j][2 * y];
+                        half[s + 2 * j + 1] = block[j][2 * y + 1];
+                    }
+                }
+            }
+        });
+    }
 
-        DoubleFFT_2D fft2d = new DoubleFFT_2D(h, w);
-        fft2d.complexInverse(fft, true); // true = normalizado
+    /*
+     * Formato de DoubleFFT_1D.realForward/realInverse (n = row.length):
+     *   a[2k] = Re[k], a[2k+1] = Im[k] para 0 < k < n/2 (n par) ou
+     *   0 < k < (n-1)/2 (n ímpar); a[0] = Re[0];
+     *   n par:   a[1] = Re[n/2]           (Im[0] = Im[n/2] = 0)
+     *   n ímpar: a[1] = Im[(n-1)/2], a[n-1] = Re[(n-1)/2]
+     */
 
-        double[][] out = new double[h][w];
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                double factor = ((x + y) % 2 == 0) ? 1.0 : -1.0;
-                out[y][x] = fft[y][2 * x] * factor; // parte real re-centralizada
-            }
+    /** Linha no formato do realForward -> bins 0 .. n/2 em half[d ..]. */
+    private static void unpackRow(double[] a, double[] half, int d) {
+        int n = a.length;
+        int last = n / 2;      // último bin guardado
+        half[d] = a[0];
+        half[d + 1] = 0.0;
+        if (n == 1) return;
+
+        for (int k = 1; k < last; k++) {             // pares (Re, Im) em a[2k], a[2k+1]
+            half[d + 2 * k] = a[2 * k];
+            half[d + 2 * k + 1] = a[2 * k + 1];
+        }
+        if (n % 2 == 0) {
+            half[d + 2 * last] = a[1];
+            half[d + 2 * last + 1] = 0.0;
+        } else {
+            half[d + 2 * last] = a[n - 1];
+            half[d + 2 * last + 1] = a[1];
+        }
+    }
+
+    /** Inverso de unpackRow (as partes imaginárias de DC e Nyquist são ignoradas). */
+    private static void packRow(double[] half, int s, double[] a) {
+        int n = a.length;
+        int last = n / 2;
+        a[0] = half[s];
+        if (n == 1) return;
+
+        for (int k = 1; k < last; k++) {
+            a[2 * k] = half[s + 2 * k];
+            a[2 * k + 1] = half[s + 2 * k + 1];
+        }
+        if (n % 2 == 0) {
+            a[1] = half[s + 2 * last];
+        } else {
+            a[n - 1] = half[s + 2 * last];
+            a[1] = half[s + 2 * last + 1];
         }
-        return out;
     }
 
-    /** Aplica máscara (0..1) aos coeficientes complexos. */
-    private static void applyMaskInPlace(double[][] fft, double[][] mask) {
-        int h = fft.length;
-        int w = mask[0].length;
+    /** dst = meia DFT com a máscara (0..1) aplicada a cada bin (dst pode ser spectrum). */
+    static void applyMask(double[] spectrum, ImageBuffer mask, double[] dst) {
+        int h = mask.height();
+        int bins = mask.width();
+        float[] m = mask.array();
 
         for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                double m = mask[y][x];
-                fft[y][2 * x]     *= m;
-                fft[y][2 * x + 1] *= m;
+            int s = 2 * y * bins;
+            int k = mask.index(0, y);
+            for (int x = 0; x < bins; x++) {
+                double v = m[k + x];
+                dst[s + 2 * x]     = spectrum[s + 2 * x] * v;
+                dst[s + 2 * x + 1] = spectrum[s + 2 * x + 1] * v;
             }
         }
     }
 
+    /** Frequência (em bins, com sinal) do bin k numa DFT de n pontos. */
+    private static int signedFrequency(int k, int n) {
+        return (k <= n / 2) ? k : k - n;
+    }
+
     /**
      * Máscara passa-baixa ideal RADIAL.
-     * wc em radianos, de 0 a π; usamos wc/π como raio normalizado (0..1).
-     * Frequência 0 está no centro (pois já centralizamos a FFT).
+     * wc em radianos, de 0 a π; usamos wc/π como raio normalizado (0..1),
+     * com as frequências u e v normalizadas por w/2 e h/2.
      */
-    private static double[][] buildIdealLowPassRadialMask(int h, int w, double wc) {
-        double[][] mask = new double[h][w];
+    private static ImageBuffer buildIdealLowPassRadialMask(int h, int w, double wc) {
+        int bins = halfWidth(w);
+        ImageBuffer mask = new ImageBuffer(bins, h);
 
         double cx = w / 2.0;
         double cy = h / 2.0;
@@ -177,12 +310,12 @@ public class FrequencyFilters {
         if (cutoffNorm > 1.0) cutoffNorm = 1.0;
 
         for (int y = 0; y < h; y++) {
-            double vy = (y - cy) / cy; // -1..1
-            for (int x = 0; x < w; x++) {
-                double vx = (x - cx) / cx; // -1..1
+            double vy = signedFrequency(y, h) / cy; // -1..1
+            for (int x = 0; x < bins; x++) {
+                double vx = x / cx; // 0..1
                 double r = Math.sqrt(vx * vx + vy * vy); // raio normalizado
 
-                mask[y][x] = (r <= cutoffNorm) ? 1.0 : 0.0;
+                mask.set(x, y, (r <= cutoffNorm) ? 1.0f : 0.0f);
             }
         }
         return mask;
@@ -191,20 +324,20 @@ public class FrequencyFilters {
     /**
      * Máscara passa-baixa ideal SOMENTE na direção horizontal (u).
      * wcX em radianos -> cutoffNormX em [0,1].
-     * Frequência 0 está no centro do eixo horizontal.
      */
-    private static double[][] buildIdealLowPassHorizontalMask(int h, int w, double wcX) {
-        double[][] mask = new double[h][w];
+    private static ImageBuffer buildIdealLowPassHorizontalMask(int h, int w, double wcX) {
+        int bins = halfWidth(w);
+        ImageBuffer mask = new ImageBuffer(bins, h);
 
         double cx = w / 2.0;
         double cutoffNormX = wcX / Math.PI;
         if (cutoffNormX > 1.0) cutoffNormX = 1.0;
 
         for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                double vx = Math.abs((x - cx) / cx); // |u| normalizado (0..1)
+            for (int x = 0; x < bins; x++) {
+                double vx = x / cx; // |u| normalizado (0..1)
                 boolean pass = (vx <= cutoffNormX);
-                mask[y][x] = pass ? 1.0 : 0.0;
+                mask.set(x, y, pass ? 1.0f : 0.0f);
             }
         }
         return mask;
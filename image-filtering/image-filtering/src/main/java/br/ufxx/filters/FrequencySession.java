@@ -0,0 +1,173 @@
+package br.ufxx.filters;
+
+import br.ufxx.filters.FrequencyFilters.MaskType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Vários filtros em frequência sobre a mesma imagem com uma única FFT
+ * direta.
+ *
+ * A meia DFT da imagem (ver {@link FrequencyFilters}) é calculada na
+ * primeira chamada e guardada; cada filtro depois custa só máscara + FFT inversa, então um
+ * lote de N filtros faz 1 direta + N inversas. Os planos vêm do cache de
+ * {@link FrequencyFilters}. {@link #lowAndHighPass} devolve o par
+ * complementar (HP = original - LP + 128) com uma única inversa.
+ *
+ * Memória: o espectro (h × (w/2+1) complexos, ~8 bytes por pixel) fica na
+ * sessão, e um segundo array do mesmo tamanho é reutilizado pelas inversas. Não é thread-safe.
+ * As máscaras (por tipo e corte) ficam num LRU da sessão de no máximo
+ * MAX_MASK_PIXELS bins; se uma máscara sozinha passa disso (imagens
+ * grandes) ela não é guardada, e um novo filtro com o mesmo corte a refaz.
+ *
+ * Com namePrefix != null, grava para o relatório a máscara e o espectro
+ * filtrado em out/namePrefix_*.png (e out/input_spectrum.png quando o
+ * espectro da imagem é calculado), como os métodos de FrequencyFilters.
+ */
+public final class FrequencySession {
+
+    /** Passa-baixa e passa-alta complementares de um mesmo corte. */
+    public static final class Pair {
+        public final ImageBuffer lowPass;
+        public final ImageBuffer highPass;
+
+        Pair(ImageBuffer lowPass, ImageBuffer highPass) {
+            this.lowPass = lowPass;
+            this.highPass = highPass;
+        }
+    }
+
+    /** Total de bins das máscaras guardadas por sessão (4 M ≈ 16 MB em float). */
+    static final long MAX_MASK_PIXELS = 1L << 22;
+
+    private final ImageBuffer img;
+    private final int h;
+    private final int w;
+    private final boolean keepSpectrum;
+    private double[] spectrum;   // meia DFT de img (só leitura)
+    private double[] work;       // espectro filtrado / inversa
+    private final Map<MaskKey, ImageBuffer> masks;
+
+    public FrequencySession(ImageBuffer img) {
+        this(img, true);
+    }
+
+    /**
+     * keepSpectrum = false: para um único filtro (métodos estáticos de
+     * FrequencyFilters). A máscara é aplicada no próprio espectro, sem o
+     * segundo array, e não é guardada; um filtro seguinte refaz a FFT direta.
+     */
+    FrequencySession(ImageBuffer img, boolean keepSpectrum) {
+        this(img, keepSpectrum, keepSpectrum ? MAX_MASK_PIXELS : 0);
+    }
+
+    FrequencySession(ImageBuffer img, boolean keepSpectrum, long maxMaskPixels) {
+        this.img = img;
+        this.h = img.height();
+        this.w = img.width();
+        this.keepSpectrum = keepSpectrum;
+
+        // todas as máscaras da sessão têm h × (w/2+1) bins
+        long maskPixels = (long) FrequencyFilters.halfWidth(w) * h;
+        long maxMasks = maxMaskPixels / maskPixels;
+        this.masks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MaskKey, ImageBuffer> eldest) {
+                return size() > maxMasks;
+            }
+        };
+    }
+
+    /** Passa-baixa ideal do tipo dado, corte wc em radianos (0..π). */
+    public ImageBuffer lowPass(MaskType type, double wc, String namePrefix) throws Exception {
+        ImageBuffer mask = mask(type, wc);
+        double[] fft = spectrum(namePrefix != null);
+
+        // salvar máscara para o relatório
+        if (namePrefix != null) {
+            DFTVisualizer.saveMask(mask, w, "out/" + namePrefix + "_filter_mask.png");
+        }
+
+        // aplicar máscara numa cópia do espectro (ou no próprio, se não for guardado)
+        if (!keepSpectrum) {
+            work = fft;
+            spectrum = null;
+        } else if (work == null) {
+            work = new double[fft.length];
+        }
+        FrequencyFilters.applyMask(fft, mask, work);
+
+        // salvar espectro filtrado
+        if (namePrefix != null) {
+            DFTVisualizer.saveMagnitudeSpectrum(
+                    work, h, w, "out/" + namePrefix + "_output_spectrum.png");
+        }
+
+        // voltar ao domínio espacial
+        ImageBuffer out = FrequencyFilters.inverseFFT(work, h, w);
+        if (!keepSpectrum) {
+            work = null;
+        }
+        return out;
+    }
+
+    /** Passa-alta: HP = original - LP + 128 (relatório do LP em namePrefix_LPbase). */
+    public ImageBuffer highPass(MaskType type, double wc, String namePrefix) throws Exception {
+        ImageBuffer lp = lowPass(type, wc, namePrefix == null ? null : namePrefix + "_LPbase");
+        return FrequencyFilters.complement(img, lp, lp);
+    }
+
+    /** LP e HP do mesmo corte a partir de uma única inversa (relatório do LP em namePrefix). */
+    public Pair lowAndHighPass(MaskType type, double wc, String namePrefix) throws Exception {
+        ImageBuffer lp = lowPass(type, wc, namePrefix);
+        ImageBuffer hp = FrequencyFilters.complement(img, lp, new ImageBuffer(w, h));
+        return new Pair(lp, hp);
+    }
+
+    /** Máscara de type e wc para h×w, do LRU da sessão (não deve ser alterada). */
+    ImageBuffer mask(MaskType type, double wc) {
+        MaskKey key = new MaskKey(type, wc);
+        ImageBuffer m = masks.get(key);
+        if (m == null) {
+            m = FrequencyFilters.buildMask(type, h, w, wc);
+            masks.put(key, m);
+        }
+        return m;
+    }
+
+    private double[] spectrum(boolean report) throws Exception {
+        if (spectrum == null) {
+            spectrum = FrequencyFilters.forwardFFT(img);
+
+            // espectro da entrada
+            if (report) {
+                DFTVisualizer.saveMagnitudeSpectrum(
+                        spectrum, h, w, "out/input_spectrum.png");
+            }
+        }
+        return spectrum;
+    }
+
+    private static final class MaskKey {
+        private final MaskType type;
+        private final double wc;
+
+        MaskKey(MaskType type, double wc) {
+            this.type = type;
+            this.wc = wc;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MaskKey)) return false;
+            MaskKey k = (MaskKey) o;
+            return type == k.type && Double.compare(wc, k.wc) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return type.hashCode() * 31 + Double.hashCode(wc);
+        }
+    }
+}
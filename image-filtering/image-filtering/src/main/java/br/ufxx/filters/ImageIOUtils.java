@@ -5,11 +5,47 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.awt.color.ColorSpace;
 import java.awt.image.ColorConvertOp;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Leitura e gravação de imagens em tons de cinza.
+ *
+ * Imagens TYPE_BYTE_GRAY e TYPE_USHORT_GRAY são convertidas direto do
+ * DataBuffer (byte[]/short[] do raster), faixas de linhas em paralelo, sem
+ * uma chamada getRGB/setRGB por pixel. Em 8 bits o resultado é o mesmo de
+ * getRGB/setRGB: o ColorModel trata o cinza como linear e o converte para
+ * sRGB (e setRGB faz o inverso), e essas conversões ficam em duas tabelas
+ * de 256 níveis montadas uma vez com o próprio getRGB/setRGB.
+ *
+ * 16 bits (toBuffer de uma imagem TYPE_USHORT_GRAY, saveGray16) são
+ * escalados para 0..255 (v / 257) mantendo a fração no float, para que o
+ * resto do pipeline trabalhe sempre na escala de 8 bits.
+ */
 public class ImageIOUtils {
 
+    // nível do raster → getRGB & 0xFF, e cinza v → byte gravado por setRGB
+    private static final float[] READ_LEVELS = new float[256];
+    private static final byte[] WRITE_LEVELS = new byte[256];
+
+    static {
+        BufferedImage lut = new BufferedImage(256, 1, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] raw = ((DataBufferByte) lut.getRaster().getDataBuffer()).getData();
+        for (int v = 0; v < 256; v++) {
+            raw[v] = (byte) v;
+        }
+        for (int v = 0; v < 256; v++) {
+            READ_LEVELS[v] = lut.getRGB(v, 0) & 0xFF;
+            lut.setRGB(v, 0, (v << 16) | (v << 8) | v);
+        }
+        System.arraycopy(raw, 0, WRITE_LEVELS, 0, 256);
+    }
+
     public static BufferedImage loadGray(String path) throws IOException {
         BufferedImage img = ImageIO.read(new File(path));
         if (img == null) {
@@ -30,38 +66,135 @@ public class ImageIOUtils {
         return img;
     }
 
-    public static double[][] toArray(BufferedImage img) {
+    public static ImageBuffer toBuffer(BufferedImage img) {
+        return toBuffer(img, ForkJoinPool.commonPool());
+    }
+
+    /** Cinza (0..255, como getRGB) de img; linhas divididas entre as threads de pool. */
+    public static ImageBuffer toBuffer(BufferedImage img, ForkJoinPool pool) {
         int w = img.getWidth();
         int h = img.getHeight();
-        double[][] data = new double[h][w];
+        ImageBuffer data = new ImageBuffer(w, h);
+        float[] dst = data.array();
 
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int rgb = img.getRGB(x, y);
-                int v = rgb & 0xFF; // cinza
-                data[y][x] = v;
+        if (img.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            WritableRaster raster = img.getRaster();
+            byte[] src = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int base = rasterBase(raster);
+            int scan = scanlineStride(raster);
+            RowBands.forEach(pool, h, (y0, y1) -> {
+                for (int y = y0; y < y1; y++) {
+                    int s = base + y * scan;
+                    int d = data.index(0, y);
+                    for (int x = 0; x < w; x++) {
+                        dst[d + x] = READ_LEVELS[src[s + x] & 0xFF];
+                    }
+                }
+            });
+        } else if (img.getType() == BufferedImage.TYPE_USHORT_GRAY) {
+            WritableRaster raster = img.getRaster();
+            short[] src = ((DataBufferUShort) raster.getDataBuffer()).getData();
+            int base = rasterBase(raster);
+            int scan = scanlineStride(raster);
+            RowBands.forEach(pool, h, (y0, y1) -> {
+                for (int y = y0; y < y1; y++) {
+                    int s = base + y * scan;
+                    int d = data.index(0, y);
+                    for (int x = 0; x < w; x++) {
+                        dst[d + x] = (src[s + x] & 0xFFFF) / 257.0f;
+                    }
+                }
+            });
+        } else {
+            // qualquer outro tipo: pixel a pixel pelo ColorModel
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    int rgb = img.getRGB(x, y);
+                    int v = rgb & 0xFF; // cinza
+                    data.set(x, y, v);
+                }
             }
         }
         return data;
     }
 
-    public static void saveGray(double[][] data, String path) throws IOException {
-        int h = data.length;
-        int w = data[0].length;
+    public static BufferedImage toGrayImage(ImageBuffer data) {
+        return toGrayImage(data, ForkJoinPool.commonPool());
+    }
+
+    /** Imagem TYPE_BYTE_GRAY com os valores arredondados e limitados a 0..255, como setRGB. */
+    public static BufferedImage toGrayImage(ImageBuffer data, ForkJoinPool pool) {
+        int h = data.height();
+        int w = data.width();
         BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = img.getRaster();
+        byte[] dst = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int scan = scanlineStride(raster);
+        float[] src = data.array();
 
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int v = (int)Math.round(data[y][x]);
-                if (v < 0) v = 0;
-                if (v > 255) v = 255;
-                int rgb = (v << 16) | (v << 8) | v;
-                img.setRGB(x, y, rgb);
+        RowBands.forEach(pool, h, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int s = data.index(0, y);
+                int d = y * scan;
+                for (int x = 0; x < w; x++) {
+                    int v = Math.round(src[s + x]);
+                    if (v < 0) v = 0;
+                    if (v > 255) v = 255;
+                    dst[d + x] = WRITE_LEVELS[v];
+                }
             }
-        }
+        });
+        return img;
+    }
+
+    /** Imagem TYPE_USHORT_GRAY: 0..255 vira 0..65535 (v · 257), sem perder a fração. */
+    public static BufferedImage toGray16Image(ImageBuffer data, ForkJoinPool pool) {
+        int h = data.height();
+        int w = data.width();
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_USHORT_GRAY);
+        WritableRaster raster = img.getRaster();
+        short[] dst = ((DataBufferUShort) raster.getDataBuffer()).getData();
+        int scan = scanlineStride(raster);
+        float[] src = data.array();
 
+        RowBands.forEach(pool, h, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int s = data.index(0, y);
+                int d = y * scan;
+                for (int x = 0; x < w; x++) {
+                    int v = Math.round(src[s + x] * 257.0f);
+                    if (v < 0) v = 0;
+                    if (v > 65535) v = 65535;
+                    dst[d + x] = (short) v;
+                }
+            }
+        });
+        return img;
+    }
+
+    public static void saveGray(ImageBuffer data, String path) throws IOException {
+        write(toGrayImage(data), path);
+    }
+
+    /** Como {@link #saveGray}, mas em PNG de 16 bits. */
+    public static void saveGray16(ImageBuffer data, String path) throws IOException {
+        write(toGray16Image(data, ForkJoinPool.commonPool()), path);
+    }
+
+    private static void write(BufferedImage img, String path) throws IOException {
         File outFile = new File(path);
         outFile.getParentFile().mkdirs();
         ImageIO.write(img, "png", outFile);
     }
+
+    /** Posição do pixel (0, 0) no array do DataBuffer (subimagens incluídas). */
+    private static int rasterBase(WritableRaster raster) {
+        ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+        return raster.getDataBuffer().getOffset()
+                + sm.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+    }
+
+    private static int scanlineStride(WritableRaster raster) {
+        return ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+    }
 }
@@ -0,0 +1,51 @@
+package br.ufxx.filters;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Divide as linhas [0, h) de uma imagem em faixas processadas em paralelo
+ * num ForkJoinPool (~4 faixas por thread, no mínimo
+ * {@value #MIN_ROWS_PER_TASK} linhas cada).
+ */
+final class RowBands {
+
+    private static final int MIN_ROWS_PER_TASK = 8;
+
+    private RowBands() {
+    }
+
+    /** Corpo aplicado a uma faixa de linhas [y0, y1). */
+    interface Body {
+        void run(int y0, int y1);
+    }
+
+    static void forEach(ForkJoinPool pool, int h, Body body) {
+        int grain = Math.max(MIN_ROWS_PER_TASK, h / (4 * pool.getParallelism()));
+        pool.invoke(new Bands(body, 0, h, grain));
+    }
+
+    private static final class Bands extends RecursiveAction {
+        private final Body body;
+        private final int y0;
+        private final int y1;
+        private final int grain;
+
+        Bands(Body body, int y0, int y1, int grain) {
+            this.body = body;
+            this.y0 = y0;
+            this.y1 = y1;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (y1 - y0 > grain) {
+                int mid = (y0 + y1) >>> 1;
+                invokeAll(new Bands(body, y0, mid, grain), new Bands(body, mid, y1, grain));
+                return;
+            }
+            body.run(y0, y1);
+        }
+    }
+}
@@ -3,6 +3,10 @@ package br.ufxx.filters;
 
 public class SpatialFilters {
 
+    /**
+     * Convolução direta com borda por replicação. Implementação de
+     * referência; para imagens grandes use {@link FastConvolution}.
+     */
     public static double[][] convolve(double[][] img, double[][] kernel) {
         int h = img.length;
         int w = img[0].length;
@@ -69,12 +73,14 @@ public class SpatialFilters {
         return hp;
     }
 
-    public static void addOffsetInPlace(double[][] img, double val) {
-        int h = img.length;
-        int w = img[0].length;
+    public static void addOffsetInPlace(ImageBuffer img, double val) {
+        int h = img.height();
+        int w = img.width();
+        float[] data = img.array();
         for (int y = 0; y < h; y++) {
+            int row = img.index(0, y);
             for (int x = 0; x < w; x++) {
-                img[y][x] += val;
+                data[row + x] += val;
             }
         }
     }
@@ -0,0 +1,124 @@
+package br.ufxx.filters;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FastConvolutionTest {
+
+    // tamanhos ímpares, maiores que TILE_WIDTH e menores que o kernel
+    private static final int[][] SIZES = { { 37, 1100 }, { 5, 3 }, { 1, 1 }, { 64, 64 } };
+
+    private static double[][][] kernels() {
+        return new double[][][] {
+                SpatialFilters.meanKernel(1),
+                SpatialFilters.meanKernel(3),
+                SpatialFilters.highFromLow(SpatialFilters.meanKernel(7)),
+                randomKernel(5, 3, 1),
+                randomKernel(4, 6, 2),   // tamanho par: centro deslocado
+        };
+    }
+
+    @Test
+    public void testDirectPathMatchesReferenceExactly() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int[] size : SIZES) {
+                double[][] img = randomImage(size[0], size[1], 7);
+                for (double[][] kernel : kernels()) {
+                    double[][] expected = SpatialFilters.convolve(img, kernel);
+                    ImageBuffer actual = FastConvolution.direct(ImageBuffer.fromArray(img), kernel, pool);
+                    assertMatches(expected, actual, 0.0);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testStructuredKernelsUseFastPathsAndMatchReference() {
+        double[][] box31 = SpatialFilters.meanKernel(31);
+        double[][] highPass = SpatialFilters.highFromLow(SpatialFilters.meanKernel(7));
+        double[][] flat = new double[4][6];        // caixa par e retangular
+        for (double[] row : flat) {
+            Arrays.fill(row, 0.25);
+        }
+        double[][] gauss = outer(new double[] { 1, 4, 6, 4, 1 }, new double[] { 1, 2, 1 });
+
+        assertEquals(FastConvolution.Kind.BOX, FastConvolution.classify(box31));
+        assertEquals(FastConvolution.Kind.BOX, FastConvolution.classify(flat));
+        assertEquals(FastConvolution.Kind.DELTA_MINUS_BOX, FastConvolution.classify(highPass));
+        assertEquals(FastConvolution.Kind.SEPARABLE, FastConvolution.classify(gauss));
+        assertEquals(FastConvolution.Kind.GENERAL, FastConvolution.classify(randomKernel(5, 3, 1)));
+
+        for (int[] size : SIZES) {
+            double[][] img = randomImage(size[0], size[1], 9);
+            for (double[][] kernel : new double[][][] { box31, highPass, flat, gauss }) {
+                double[][] expected = SpatialFilters.convolve(img, kernel);
+                ImageBuffer actual = FastConvolution.convolve(ImageBuffer.fromArray(img), kernel);
+                assertMatches(expected, actual, 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void testViewInputMatchesCopy() {
+        ImageBuffer big = ImageBuffer.fromArray(randomImage(50, 1200, 8));
+        ImageBuffer view = big.view(13, 5, 1100, 37);   // stride != width
+
+        for (double[][] kernel : kernels()) {
+            ImageBuffer expected = FastConvolution.convolve(view.copy(), kernel);
+            ImageBuffer actual = FastConvolution.convolve(view, kernel);
+            assertArrayEquals(expected.array(), actual.array(), 0.0f);
+        }
+    }
+
+    /** actual == (float) expected, a menos de tol. */
+    private static void assertMatches(double[][] expected, ImageBuffer actual, double tol) {
+        assertEquals(expected.length, actual.height());
+        assertEquals(expected[0].length, actual.width());
+        for (int y = 0; y < expected.length; y++) {
+            for (int x = 0; x < expected[y].length; x++) {
+                assertEquals((float) expected[y][x], actual.get(x, y), tol);
+            }
+        }
+    }
+
+    private static double[][] randomImage(int h, int w, long seed) {
+        Random rnd = new Random(seed);
+        double[][] img = new double[h][w];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                img[y][x] = rnd.nextInt(256);
+            }
+        }
+        return img;
+    }
+
+    private static double[][] randomKernel(int kh, int kw, long seed) {
+        Random rnd = new Random(seed);
+        double[][] k = new double[kh][kw];
+        for (int j = 0; j < kh; j++) {
+            for (int i = 0; i < kw; i++) {
+                k[j][i] = rnd.nextDouble() - 0.5;
+            }
+        }
+        return k;
+    }
+
+    private static double[][] outer(double[] col, double[] row) {
+        double[][] k = new double[col.length][row.length];
+        for (int j = 0; j < col.length; j++) {
+            for (int i = 0; i < row.length; i++) {
+                k[j][i] = col[j] * row[i] / 48.0;
+            }
+        }
+        return k;
+    }
+}
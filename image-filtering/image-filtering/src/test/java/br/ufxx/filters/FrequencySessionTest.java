@@ -0,0 +1,115 @@
+package br.ufxx.filters;
+
+import br.ufxx.filters.FrequencyFilters.MaskType;
+import org.jtransforms.fft.DoubleFFT_2D;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FrequencySessionTest {
+
+    @Test
+    public void testSessionMatchesOneShotFilters() throws Exception {
+        ImageBuffer img = randomImage(48, 60, 4);
+        FrequencySession session = new FrequencySession(img);
+
+        for (MaskType type : MaskType.values()) {
+            for (double wc : new double[] { Math.PI / 2, Math.PI / 8 }) {
+                ImageBuffer lp = new FrequencySession(img, false).lowPass(type, wc, null);
+                ImageBuffer hp = new FrequencySession(img, false).highPass(type, wc, null);
+
+                FrequencySession.Pair pair = session.lowAndHighPass(type, wc, null);
+                assertNotSame(pair.lowPass, pair.highPass);
+                assertArrayEquals(lp.array(), pair.lowPass.array(), 0.0f);
+                assertArrayEquals(hp.array(), pair.highPass.array(), 0.0f);
+
+                // o espectro guardado não é alterado pelos filtros anteriores
+                assertArrayEquals(lp.array(), session.lowPass(type, wc, null).array(), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void testFullBandLowPassReturnsImage() throws Exception {
+        ImageBuffer img = randomImage(32, 32, 5);
+        FrequencySession session = new FrequencySession(img);
+
+        // wc = π cobre todo o retângulo só na horizontal
+        ImageBuffer lp = session.lowPass(MaskType.HORIZONTAL, Math.PI, null);
+        ImageBuffer hp = session.highPass(MaskType.HORIZONTAL, Math.PI, null);
+        for (int i = 0; i < img.array().length; i++) {
+            assertEquals(img.array()[i], lp.array()[i], 1e-3f);
+            assertEquals(128.0f, hp.array()[i], 1e-3f);
+        }
+    }
+
+    @Test
+    public void testHalfSpectrumMatchesComplexDFT() {
+        for (int[] size : new int[][] { { 48, 60 }, { 33, 45 } }) {
+            int h = size[0];
+            int w = size[1];
+            ImageBuffer img = randomImage(h, w, 6);
+
+            double[] full = new double[2 * h * w];
+            for (int i = 0; i < h * w; i++) {
+                full[2 * i] = img.array()[i];
+            }
+            new DoubleFFT_2D(h, w).complexForward(full);
+
+            double[] half = FrequencyFilters.forwardFFT(img);
+            int bins = FrequencyFilters.halfWidth(w);
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < bins; x++) {
+                    int f = 2 * (y * w + x);
+                    int k = 2 * (y * bins + x);
+                    assertEquals(full[f], half[k], 1e-6);
+                    assertEquals(full[f + 1], half[k + 1], 1e-6);
+                }
+            }
+
+            ImageBuffer back = FrequencyFilters.inverseFFT(half, h, w);
+            assertArrayEquals(img.array(), back.array(), 1e-3f);
+        }
+    }
+
+    @Test
+    public void testPlansAndMasksAreCached() {
+        assertSame(FrequencyFilters.plan(64), FrequencyFilters.plan(64));
+
+        FrequencySession session = new FrequencySession(new ImageBuffer(48, 64));
+        ImageBuffer m = session.mask(MaskType.RADIAL, Math.PI / 3);
+        assertSame(m, session.mask(MaskType.RADIAL, Math.PI / 3));
+        assertNotSame(m, session.mask(MaskType.HORIZONTAL, Math.PI / 3));
+
+        // máscaras são da sessão: outra imagem do mesmo tamanho não as vê
+        assertNotSame(m, new FrequencySession(new ImageBuffer(48, 64)).mask(MaskType.RADIAL, Math.PI / 3));
+    }
+
+    @Test
+    public void testMaskLargerThanCapIsNotKept() {
+        // 64 × 25 bins por máscara: cabe uma, não duas
+        FrequencySession session = new FrequencySession(new ImageBuffer(48, 64), true, 64 * 25);
+        ImageBuffer m = session.mask(MaskType.RADIAL, Math.PI / 3);
+        session.mask(MaskType.HORIZONTAL, Math.PI / 3);
+        assertNotSame(m, session.mask(MaskType.RADIAL, Math.PI / 3));
+
+        FrequencySession tiny = new FrequencySession(new ImageBuffer(48, 64), true, 64 * 25 - 1);
+        m = tiny.mask(MaskType.RADIAL, Math.PI / 3);
+        assertNotSame(m, tiny.mask(MaskType.RADIAL, Math.PI / 3));
+    }
+
+    private static ImageBuffer randomImage(int h, int w, long seed) {
+        Random rnd = new Random(seed);
+        ImageBuffer img = new ImageBuffer(w, h);
+        float[] data = img.array();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = rnd.nextInt(256);
+        }
+        return img;
+    }
+}
@@ -0,0 +1,67 @@
+package br.ufxx.filters;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ImageBufferTest {
+
+    @Test
+    public void testViewsShareStorage() {
+        ImageBuffer img = new ImageBuffer(10, 6);
+        for (int y = 0; y < 6; y++) {
+            for (int x = 0; x < 10; x++) {
+                img.set(x, y, 10 * y + x);
+            }
+        }
+
+        ImageBuffer view = img.view(3, 2, 4, 3);
+        assertSame(img.array(), view.array());
+        assertFalse(view.isContiguous());
+        assertEquals(23.0f, view.get(0, 0), 0.0f);
+        assertEquals(46.0f, view.get(3, 2), 0.0f);
+
+        view.fill(-1.0f);
+        assertEquals(-1.0f, img.get(3, 2), 0.0f);
+        assertEquals(-1.0f, img.get(6, 4), 0.0f);
+        assertEquals(27.0f, img.get(7, 2), 0.0f);   // fora da view
+        assertEquals(15.0f, img.get(5, 1), 0.0f);
+
+        ImageBuffer copy = view.copy();
+        assertTrue(copy.isContiguous());
+        assertEquals(0, copy.offset());
+        assertEquals(-1.0f, copy.get(3, 2), 0.0f);
+    }
+
+    @Test
+    public void testTilesCoverImageOnce() {
+        ImageBuffer img = new ImageBuffer(10, 7);
+        List<ImageBuffer> tiles = img.tiles(4, 3);
+        assertEquals(9, tiles.size());   // 3 colunas × 3 linhas de blocos
+
+        for (ImageBuffer t : tiles) {
+            for (int y = 0; y < t.height(); y++) {
+                for (int x = 0; x < t.width(); x++) {
+                    t.set(x, y, t.get(x, y) + 1.0f);
+                }
+            }
+        }
+        for (float v : img.array()) {
+            assertEquals(1.0f, v, 0.0f);
+        }
+
+        ImageBuffer last = tiles.get(tiles.size() - 1);
+        assertEquals(2, last.width());
+        assertEquals(1, last.height());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrapRejectsWindowOutsideArray() {
+        ImageBuffer.wrap(new float[20], 2, 5, 4, 5);
+    }
+}
@@ -0,0 +1,73 @@
+package br.ufxx.filters;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferUShort;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ImageIOUtilsTest {
+
+    @Test
+    public void testByteGrayMatchesGetRgbAndSetRgb() {
+        BufferedImage img = new BufferedImage(300, 41, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] levels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+        new Random(3).nextBytes(levels);
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            ImageBuffer buf = ImageIOUtils.toBuffer(img, pool);
+            BufferedImage expected = new BufferedImage(300, 41, BufferedImage.TYPE_BYTE_GRAY);
+            for (int y = 0; y < 41; y++) {
+                for (int x = 0; x < 300; x++) {
+                    int v = img.getRGB(x, y) & 0xFF;
+                    assertEquals(v, buf.get(x, y), 0.0f);
+                    expected.setRGB(x, y, (v << 16) | (v << 8) | v);
+                }
+            }
+
+            BufferedImage out = ImageIOUtils.toGrayImage(buf, pool);
+            assertArrayEquals(((DataBufferByte) expected.getRaster().getDataBuffer()).getData(),
+                    ((DataBufferByte) out.getRaster().getDataBuffer()).getData());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubimageUsesRasterOffsets() {
+        BufferedImage img = new BufferedImage(20, 10, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] levels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = (byte) i;
+        }
+
+        ImageBuffer sub = ImageIOUtils.toBuffer(img.getSubimage(4, 3, 9, 5));
+        assertEquals(9, sub.width());
+        assertEquals(5, sub.height());
+        assertEquals(img.getRGB(4, 3) & 0xFF, sub.get(0, 0), 0.0f);
+        assertEquals(img.getRGB(12, 7) & 0xFF, sub.get(8, 4), 0.0f);
+    }
+
+    @Test
+    public void testUShortGrayScalesTo8BitRange() {
+        BufferedImage img = new BufferedImage(3, 1, BufferedImage.TYPE_USHORT_GRAY);
+        short[] levels = ((DataBufferUShort) img.getRaster().getDataBuffer()).getData();
+        levels[0] = 0;
+        levels[1] = (short) 32896;   // 128 · 257
+        levels[2] = (short) 1000;
+
+        ImageBuffer buf = ImageIOUtils.toBuffer(img);
+        assertEquals(0.0f, buf.get(0, 0), 0.0f);
+        assertEquals(128.0f, buf.get(1, 0), 0.0f);
+        assertEquals(1000 / 257.0f, buf.get(2, 0), 0.0f);
+
+        BufferedImage out = ImageIOUtils.toGray16Image(buf, ForkJoinPool.commonPool());
+        assertArrayEquals(levels, ((DataBufferUShort) out.getRaster().getDataBuffer()).getData());
+    }
+}
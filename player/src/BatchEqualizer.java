@@ -0,0 +1,151 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Equalização em lote, dentro de um único processo: cada job (MP3 de entrada,
+ * WAV de saída e ganhos das 5 bandas) roda num pool limitado de workers,
+ * com seu próprio OfflineRenderer (EqualizerEngine próprio, sem saída de áudio).
+ *
+ * Ao final reporta a vazão agregada em ×tempo-real (segundos de áudio
+ * processados por segundo de relógio), total e por worker.
+ */
+public class BatchEqualizer {
+
+    private static final float SAMPLE_RATE = 44100f;
+
+    /** Um arquivo a equalizar. */
+    public static class Job {
+        final String input;
+        final String output;
+        final double[] gainsDb; // 5 bandas
+
+        public Job(String input, String output, double[] gainsDb) {
+            this.input = input;
+            this.output = output;
+            this.gainsDb = gainsDb.clone();
+        }
+    }
+
+    /** Resultado agregado do lote. */
+    public static class Report {
+        public final int jobs;
+        public final int failed;
+        public final double audioSeconds;
+        public final double wallSeconds;
+        public final int workers;
+
+        Report(int jobs, int failed, double audioSeconds, double wallSeconds, int workers) {
+            this.jobs = jobs;
+            this.failed = failed;
+            this.audioSeconds = audioSeconds;
+            this.wallSeconds = wallSeconds;
+            this.workers = workers;
+        }
+
+        /** Segundos de áudio por segundo de relógio, somando todos os workers. */
+        public double realtimeFactor() {
+            return wallSeconds > 0 ? audioSeconds / wallSeconds : 0.0;
+        }
+
+        /** Divide pelos cores de fato usáveis (workers além disso só disputam CPU). */
+        public double realtimeFactorPerCore() {
+            int cores = Math.min(workers, Runtime.getRuntime().availableProcessors());
+            return realtimeFactor() / cores;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d jobs (%d falhas), %.1f s de áudio em %.1f s: %.1fx RT total, %.1fx RT por core (%d workers)",
+                    jobs, failed, audioSeconds, wallSeconds,
+                    realtimeFactor(), realtimeFactorPerCore(), workers);
+        }
+    }
+
+    private final int workers;
+
+    public BatchEqualizer(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    public Report run(List<Job> jobs) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        AtomicInteger failed = new AtomicInteger();
+
+        long t0 = System.nanoTime();
+        List<Future<Long>> results = new ArrayList<>();
+        for (Job job : jobs) {
+            results.add(pool.submit(() -> render(job)));
+        }
+
+        long totalFrames = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                totalFrames += results.get(i).get();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                System.err.println("[Batch] Falha em " + jobs.get(i).input + ": " + e.getCause());
+            }
+        }
+        pool.shutdown();
+        double wall = (System.nanoTime() - t0) / 1e9;
+
+        return new Report(jobs.size(), failed.get(), totalFrames / SAMPLE_RATE, wall, workers);
+    }
+
+    /** Processa um job e devolve o número de frames gravados. */
+    private static long render(Job job) throws Exception {
+        OfflineRenderer.Result result = new OfflineRenderer()
+                .setGainsDb(job.gainsDb)
+                .render(job.input, job.output);
+        return result.frames;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Uso:");
+            System.out.println("  java BatchEqualizer [-j workers] pasta_saida arquivo.mp3[=g0,g1,g2,g3,g4] ...");
+            System.out.println("  (ganhos em dB; sem '=' todas as bandas ficam em 0 dB)");
+            return;
+        }
+
+        int workers = Runtime.getRuntime().availableProcessors();
+        int a = 0;
+        if ("-j".equals(args[a])) {
+            workers = Integer.parseInt(args[a + 1]);
+            a += 2;
+        }
+
+        File outDir = new File(args[a++]);
+        outDir.mkdirs();
+
+        List<Job> jobs = new ArrayList<>();
+        for (; a < args.length; a++) {
+            String spec = args[a];
+            String input = spec;
+            double[] gains = new double[5];
+
+            int eq = spec.lastIndexOf('=');
+            if (eq >= 0) {
+                input = spec.substring(0, eq);
+                String[] parts = spec.substring(eq + 1).split(",");
+                for (int b = 0; b < parts.length && b < gains.length; b++) {
+                    gains[b] = Double.parseDouble(parts[b].trim());
+                }
+            }
+
+            String name = new File(input).getName().replaceFirst("\\.[^.]*$", "");
+            String output = new File(outDir, (jobs.size() + 1) + "_" + name + "_eq.wav").getPath();
+            jobs.add(new Job(input, output, gains));
+        }
+
+        System.out.println("[Batch] " + jobs.size() + " jobs, " + workers + " workers");
+        Report report = new BatchEqualizer(workers).run(jobs);
+        System.out.println("[Batch] " + report);
+    }
+}
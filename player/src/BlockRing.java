@@ -0,0 +1,167 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fila circular SPSC (um produtor, um consumidor) de blocos de áudio
+ * pré-alocados, ligando dois estágios do pipeline sem trava.
+ *
+ * O produtor pega um slot livre ({@link #claim}), preenche e publica; o
+ * consumidor pega o próximo slot publicado ({@link #take}), usa e devolve
+ * ({@link #release}). Nenhum bloco é alocado depois da construção.
+ *
+ * Fila cheia: claim espera (contrapressão) e tryClaim descarta o bloco.
+ * Fila vazia: take espera e conta como "vazia" — na fila da placa de som,
+ * é o sinal de underrun. Qualquer um dos lados pode fechar a fila: o
+ * consumidor recebe null quando ela esvazia, o produtor recebe null em
+ * claim se o consumidor desistiu.
+ */
+public final class BlockRing {
+
+    private static final int SPIN_LIMIT = 100;
+    private static final long PARK_NANOS = 100_000; // 0,1 ms
+
+    private final String name;
+    private final float[][] slots;
+    private final int[] lengths;
+    private final int mask;
+
+    private volatile long head = 0;   // próximo a consumir (escrito só pelo consumidor)
+    private volatile long tail = 0;   // próximo a produzir (escrito só pelo produtor)
+    private volatile boolean closed = false;
+
+    // métricas (cada uma escrita por um único thread)
+    private volatile long published = 0;
+    private volatile long occupancySum = 0;
+    private volatile long maxOccupancy = 0;
+    private volatile long dropped = 0;
+    private volatile long producerWaitNanos = 0;
+    private volatile long emptyCount = 0;
+    private volatile long consumerWaitNanos = 0;
+
+    /**
+     * @param capacity      número de blocos (potência de 2)
+     * @param blockSamples  tamanho de cada bloco (samples intercalados)
+     */
+    public BlockRing(String name, int capacity, int blockSamples) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacidade deve ser potência de 2: " + capacity);
+        }
+        this.name = name;
+        this.slots = new float[capacity][blockSamples];
+        this.lengths = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // ===== produtor =====
+
+    /** Próximo slot livre, esperando se a fila estiver cheia; null se fechada. */
+    public float[] claim() {
+        long t = tail;
+        if (t - head == slots.length) {
+            long start = System.nanoTime();
+            int spins = 0;
+            while (t - head == slots.length) {
+                if (closed) return null;
+                backoff(spins++);
+            }
+            producerWaitNanos += System.nanoTime() - start;
+        }
+        return closed ? null : slots[(int) t & mask];
+    }
+
+    /** Próximo slot livre, ou null (bloco descartado) se a fila estiver cheia. */
+    public float[] tryClaim() {
+        long t = tail;
+        if (closed) return null;
+        if (t - head == slots.length) {
+            dropped++;
+            return null;
+        }
+        return slots[(int) t & mask];
+    }
+
+    /** Publica o slot obtido em claim/tryClaim com length samples válidos. */
+    public void publish(int length) {
+        long t = tail;
+        lengths[(int) t & mask] = length;
+
+        long occupancy = t + 1 - head;
+        occupancySum += occupancy;
+        if (occupancy > maxOccupancy) maxOccupancy = occupancy;
+        published++;
+
+        tail = t + 1;
+    }
+
+    // ===== consumidor =====
+
+    /** Próximo bloco publicado, esperando se vazia; null se fechada e vazia. */
+    public float[] take() {
+        long h = head;
+        if (h == tail) {
+            if (closed) {
+                // o produtor publica antes de fechar: relê tail (o último
+                // bloco pode ter chegado entre a leitura acima e o close)
+                if (h == tail) return null;
+            } else {
+                emptyCount++;
+                long start = System.nanoTime();
+                int spins = 0;
+                while (h == tail) {
+                    if (closed) {
+                        if (h == tail) return null;
+                        break;
+                    }
+                    backoff(spins++);
+                }
+                consumerWaitNanos += System.nanoTime() - start;
+            }
+        }
+        return slots[(int) h & mask];
+    }
+
+    /** Samples válidos no bloco devolvido por take. */
+    public int length() {
+        return lengths[(int) head & mask];
+    }
+
+    /** Devolve o slot de take ao produtor. */
+    public void release() {
+        head = head + 1;
+    }
+
+    /** Fim do fluxo (produtor) ou desistência (consumidor). */
+    public void close() {
+        closed = true;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /** Vezes em que o consumidor encontrou a fila vazia. */
+    public long getEmptyCount() {
+        return emptyCount;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    /** Resumo de uma linha das métricas da fila. */
+    public String stats() {
+        double meanOccupancy = published == 0 ? 0.0 : (double) occupancySum / published;
+        return String.format(
+                "%s: %d blocos, ocupação média %.1f/%d (máx %d), produtor esperou %.1f ms, "
+                        + "consumidor esperou %.1f ms (%d vezes vazia), %d descartados",
+                name, published, meanOccupancy, slots.length, maxOccupancy,
+                producerWaitNanos / 1e6, consumerWaitNanos / 1e6, emptyCount, dropped);
+    }
+
+    private static void backoff(int spins) {
+        if (spins < SPIN_LIMIT) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
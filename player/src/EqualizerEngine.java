@@ -1,6 +1,9 @@
+import java.util.concurrent.atomic.AtomicReference;
+
 public class EqualizerEngine {
 
     private static final float FS = 44100f;
+    private static final int CHANNELS = 2; // estéreo intercalado (saída do JLayer)
 
     // 5 bandas:
     // 1: 100 – 215 Hz
@@ -8,26 +11,109 @@ public class EqualizerEngine {
     // 3: 665 – 2150 Hz
     // 4: 2150 – 6650 Hz
     // 5: 6650 – 10000 Hz
-    private final FirBandPass[] bands = new FirBandPass[5];
+    // (cada filtro mantém linha de atraso separada por canal)
+    private final MultiChannelFir[] bands = new MultiChannelFir[5];
+
+    // Ganhos em dB/linear e kernel combinado, publicados como um snapshot
+    // imutável: escritas (GainServer, REST) trocam a referência inteira e o
+    // thread de áudio pega um conjunto consistente a cada bloco, sem trava.
+    private final AtomicReference<GainSnapshot> gains;
+    private final double[][] bandKernels = new double[5][];
+
+    // Modo kernel combinado: h = δ + Σ (G_i - 1) * h_i num único FIR
+    private volatile boolean combinedKernel = false;
+    private MultiChannelFir combinedFilter;   // kernel em uso
+    private MultiChannelFir fadeFilter;       // kernel novo durante o crossfade
+    private final double[] activeKernel;      // cópia do kernel em combinedFilter
+    private double[] nextKernel;              // kernel de fadeFilter
+    private boolean activeIdentity = true;
+    private boolean fading = false;
+    private final GainRamp fade = new GainRamp(0f);
+    private GainSnapshot kernelLoaded; // snapshot cujo kernel está no combinedFilter (só thread de áudio)
+
+    // Transições sem clique: cada correção (G_i - 1) segue uma rampa linear
+    // de rampFrames amostras (no modo combinado, crossfade entre kernels).
+    private volatile int rampFrames = (int) Math.round(20.0 * FS / 1000.0); // 20 ms
+    private final GainRamp[] bandCorr = new GainRamp[5];
+    private GainSnapshot rampTarget; // snapshot seguido pelas rampas (só thread de áudio)
+    private boolean started = false; // o primeiro bloco aplica os ganhos direto
+    private boolean lastCombined = false; // modo do bloco anterior (só thread de áudio)
 
-    // ganhos em dB e linear para cada banda
-    private final double[] gainDb  = new double[5];
-    private final double[] gainLin = new double[5];
+    // Latência pedido → bloco de áudio que começa a aplicar a mudança
+    private final LatencyHistogram updateLatency = new LatencyHistogram();
+    private GainSnapshot lastApplied; // só thread de áudio
+
+    // Buffers planares [canal][frame] reutilizados entre blocos: nada é
+    // alocado no caminho quente depois que atingem o maior bloco já visto.
+    private float[][] dry = new float[CHANNELS][1024];
+    private float[][] acc = new float[CHANNELS][1024];
+    private float[][] tmp = new float[CHANNELS][1024];
 
     public EqualizerEngine() {
-        int K = 64; // N = 2K+1 taps
+        this(64); // N = 2K+1 = 129 taps
+    }
 
-        bands[0] = new FirBandPass(FS,  100.0,   215.0,  K);
-        bands[1] = new FirBandPass(FS,  215.0,   665.0,  K);
-        bands[2] = new FirBandPass(FS,  665.0,  2150.0,  K);
-        bands[3] = new FirBandPass(FS, 2150.0,  6650.0,  K);
-        bands[4] = new FirBandPass(FS, 6650.0, 10000.0,  K);
+    /**
+     * @param K  metade da largura dos FIRs de banda (N = 2K+1 taps)
+     */
+    public EqualizerEngine(int K) {
+
+        bands[0] = new MultiChannelFir(CHANNELS, FS,  100.0,   215.0,  K);
+        bands[1] = new MultiChannelFir(CHANNELS, FS,  215.0,   665.0,  K);
+        bands[2] = new MultiChannelFir(CHANNELS, FS,  665.0,  2150.0,  K);
+        bands[3] = new MultiChannelFir(CHANNELS, FS, 2150.0,  6650.0,  K);
+        bands[4] = new MultiChannelFir(CHANNELS, FS, 6650.0, 10000.0,  K);
 
-        // todos começam em 0 dB (ganho 1.0)
         for (int i = 0; i < 5; i++) {
-            gainDb[i]  = 0.0;
-            gainLin[i] = 1.0;
+            bandKernels[i] = bands[i].getCoefficients();
         }
+
+        // todos começam em 0 dB (ganho 1.0)
+        GainSnapshot flat = GainSnapshot.flat(5, bandKernels);
+        gains = new AtomicReference<>(flat);
+
+        combinedFilter = new MultiChannelFir(CHANNELS, flat.kernel);
+        fadeFilter = new MultiChannelFir(CHANNELS, flat.kernel);
+        activeKernel = flat.kernel.clone();
+        nextKernel = flat.kernel;
+        kernelLoaded = flat;
+
+        for (int b = 0; b < 5; b++) {
+            bandCorr[b] = new GainRamp(0f);
+        }
+        rampTarget = flat;
+        lastApplied = flat;
+    }
+
+    /**
+     * Liga/desliga o modo de kernel combinado: as 5 bandas viram um único
+     * FIR, recalculado a cada mudança de ganho, e cada bloco faz só uma
+     * convolução (custo independente do número de bandas).
+     *
+     * Pode mudar a qualquer momento, inclusive durante a reprodução: os
+     * filtros do modo que não está em uso continuam recebendo a entrada
+     * (só o histórico, sem convolução), então o outro modo assume no
+     * próximo bloco com a linha de atraso em dia, sem transitório. Uma
+     * rampa de ganho em andamento na hora da troca termina de uma vez.
+     */
+    public void setCombinedKernel(boolean enabled) {
+        this.combinedKernel = enabled;
+    }
+
+    public boolean isCombinedKernel() {
+        return combinedKernel;
+    }
+
+    /**
+     * Duração das transições de ganho em ms (0 = troca imediata no bloco).
+     * Vale a partir da próxima mudança.
+     */
+    public void setRampTimeMs(double ms) {
+        rampFrames = (int) Math.round(Math.max(0.0, ms) * FS / 1000.0);
+    }
+
+    public double getRampTimeMs() {
+        return rampFrames * 1000.0 / FS;
     }
 
     public int getNumBands() {
@@ -37,17 +123,60 @@ public class EqualizerEngine {
     public void setBandGainDb(int band, double db) {
         if (band < 0 || band >= 5) return;
 
-        // limitar range de ganho, ex.: [-12, +12] dB
-        if (db > 12.0) db = 12.0;
-        if (db < -12.0) db = -12.0;
+        double[] update = { Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+        update[band] = db;
+        setGainsDb(update);
+    }
+
+    /**
+     * Atualiza várias bandas de uma vez (NaN = mantém a banda).
+     * O thread de áudio vê todas as mudanças no mesmo bloco, nunca metade.
+     */
+    public void setGainsDb(double[] db) {
+        setGainsDb(db, System.nanoTime());
+    }
+
+    /**
+     * Idem, com o instante (System.nanoTime deste processo) em que o pedido
+     * chegou, usado em {@link #getUpdateLatency()}.
+     */
+    public void setGainsDb(double[] db, long originNanos) {
+        double[] clamped = new double[5];
+        for (int b = 0; b < 5; b++) {
+            double v = (b < db.length) ? db[b] : Double.NaN;
+
+            // limitar range de ganho, ex.: [-12, +12] dB
+            if (v > 12.0) v = 12.0;
+            if (v < -12.0) v = -12.0;
+            clamped[b] = v;
+        }
 
-        gainDb[band]  = db;
-        gainLin[band] = Math.pow(10.0, db / 20.0);
+        // CAS: escritores concorrentes não perdem atualizações uns dos outros
+        GainSnapshot current;
+        GainSnapshot next;
+        do {
+            current = gains.get();
+            next = current.with(clamped, bandKernels, originNanos);
+        } while (!gains.compareAndSet(current, next));
     }
 
     public double getBandGainDb(int band) {
         if (band < 0 || band >= 5) return 0.0;
-        return gainDb[band];
+        return gains.get().getGainDb(band);
+    }
+
+    /**
+     * Latências entre a chegada da mudança de ganho e o primeiro bloco de
+     * áudio que a aplica (início da rampa). Mudanças que chegam no mesmo
+     * intervalo entre blocos contam uma vez, pela mais recente.
+     */
+    public LatencyHistogram getUpdateLatency() {
+        return updateLatency;
+    }
+
+    /** Ganhos atuais (imutável). */
+    public GainSnapshot getGains() {
+        return gains.get();
     }
 
     /**
@@ -63,46 +192,216 @@ public class EqualizerEngine {
      *
      * Se todos G_i = 1 (0 dB), então:
      *   y[n] = x[n]
+     *
+     * Quando os ganhos mudam, (G_i - 1) vai do valor antigo ao novo em
+     * rampa linear ao longo dos próximos blocos, em vez de saltar.
      */
     public void processInPlace(float[] samples, int length) {
-        if (length <= 0) return;
+        int frames = length / CHANNELS;
+        if (frames <= 0) return;
+        int used = frames * CHANNELS;
 
-        // 1) dry = cópia do sinal original
-        float[] dry = new float[length];
-        System.arraycopy(samples, 0, dry, 0, length);
+        ensureCapacity(frames);
+        float[][] dry = this.dry;
+        float[][] acc = this.acc;
+        float[][] tmp = this.tmp; // 3) buffer temporário: saída da banda b
 
-        // 2) acc = começa como o sinal original
-        float[] acc = new float[length];
-        System.arraycopy(dry, 0, acc, 0, length);
+        // ganhos deste bloco: uma única leitura da referência publicada
+        GainSnapshot snap = gains.get();
+        if (snap != lastApplied) {
+            updateLatency.record(System.nanoTime() - snap.originNanos);
+            lastApplied = snap;
+        }
+        int ramp = started ? rampFrames : 0;
+        started = true;
 
-        // 3) buffer temporário: saída da banda b
-        float[] tmp = new float[length];
+        // troca de modo: o estado de ganhos do modo que assume (rampas ou
+        // kernel carregado) parou no último bloco em que ele rodou, então
+        // ele recomeça direto nos ganhos atuais, como no primeiro bloco
+        boolean combined = combinedKernel;
+        if (combined != lastCombined) {
+            lastCombined = combined;
+            rampTarget = null;
+            kernelLoaded = null;
+            ramp = 0;
+        }
+
+        if (combined) {
+            processCombined(samples, frames, snap, ramp);
+            limitPeak(samples, used);
+            return;
+        }
+
+        // novos alvos: as rampas recomeçam do ganho que está soando agora
+        if (rampTarget != snap) {
+            for (int b = 0; b < 5; b++) {
+                bandCorr[b].setTarget((float) (snap.gainLin[b] - 1.0), ramp);
+            }
+            rampTarget = snap;
+        }
+
+        // 1) dry = cópia do sinal original, separada por canal
+        MultiChannelFir.deinterleave(samples, dry, CHANNELS, frames);
+        combinedFilter.feedPlanar(dry, frames);   // histórico do modo combinado
+
+        // 2) acc = começa como o sinal original
+        for (int c = 0; c < CHANNELS; c++) {
+            System.arraycopy(dry[c], 0, acc[c], 0, frames);
+        }
 
         // 4) para cada banda
         for (int b = 0; b < 5; b++) {
-            double G = gainLin[b];
+            GainRamp corr = bandCorr[b];
 
-            // Se G == 1.0 (0 dB), essa banda não muda nada → pode pular
-            if (Math.abs(G - 1.0) < 1e-6) {
+            // Se G == 1.0 (0 dB) e sem rampa, essa banda não muda nada:
+            // só mantém o histórico do FIR para uma futura subida de ganho
+            if (corr.isSteady() && Math.abs(corr.value()) < 1e-6f) {
+                bands[b].feedPlanar(dry, frames);
                 continue;
             }
 
             // tmp = cópia do sinal original
-            System.arraycopy(dry, 0, tmp, 0, length);
+            for (int c = 0; c < CHANNELS; c++) {
+                System.arraycopy(dry[c], 0, tmp[c], 0, frames);
+            }
+
+            // aplica o FIR passa-faixa dessa banda (cada canal com seu estado)
+            bands[b].processPlanar(tmp, frames);
 
-            // aplica o FIR passa-faixa dessa banda
-            bands[b].processBlock(tmp, length);
+            // acumula: acc[n] += (G - 1)[n] * tmp[n]  (mesma rampa nos dois canais)
+            for (int c = 0; c < CHANNELS; c++) {
+                corr.accumulate(acc[c], tmp[c], frames);
+            }
+            corr.advance(frames);
+        }
 
-            // fator de correção = (G - 1)
-            float gCorr = (float) (G - 1.0);
+        // 5) escreve de volta em samples (intercalado)
+        MultiChannelFir.interleave(acc, samples, CHANNELS, frames);
 
-            // acumula: acc[n] += (G - 1) * tmp[n]
-            for (int n = 0; n < length; n++) {
-                acc[n] += gCorr * tmp[n];
+        // 6) LIMITER SUAVE DE PICO (normalização de bloco)
+        limitPeak(samples, used);
+    }
+
+    /**
+     * Modo kernel combinado. Uma troca de kernel vira um crossfade entre a
+     * saída do kernel antigo e a do novo (mesmo histórico de entrada), o que
+     * equivale a interpolar os coeficientes amostra a amostra.
+     */
+    private void processCombined(float[] samples, int frames, GainSnapshot snap, int ramp) {
+        float[][] acc = this.acc;
+        float[][] tmp = this.tmp;
+
+        // troca de kernel só aqui, na fronteira do bloco
+        if (kernelLoaded != snap) {
+            if (ramp <= 0) {
+                System.arraycopy(snap.kernel, 0, activeKernel, 0, activeKernel.length);
+                combinedFilter.setCoefficients(activeKernel);
+                activeIdentity = snap.identity;
+                fading = false;
+                fade.jumpTo(0f);
+            } else {
+                if (fading) {
+                    // alvo mudou no meio do crossfade: a mistura atual vira o kernel em uso
+                    double a = fade.value();
+                    for (int i = 0; i < activeKernel.length; i++) {
+                        activeKernel[i] += a * (nextKernel[i] - activeKernel[i]);
+                    }
+                    combinedFilter.setCoefficients(activeKernel);
+                    activeIdentity = false;
+                }
+                fadeFilter.copyStateFrom(combinedFilter);
+                fadeFilter.setCoefficients(snap.kernel);
+                nextKernel = snap.kernel;
+                fade.jumpTo(0f);
+                fade.setTarget(1f, ramp);
+                fading = true;
+            }
+            kernelLoaded = snap;
+        }
+
+        MultiChannelFir.deinterleave(samples, acc, CHANNELS, frames);
+
+        // histórico das bandas em dia para uma volta ao modo por banda
+        for (int b = 0; b < 5; b++) {
+            bands[b].feedPlanar(acc, frames);
+        }
+
+        if (!fading) {
+            if (activeIdentity) {
+                // kernel = δ: saída = entrada, só mantém o histórico
+                combinedFilter.feedPlanar(acc, frames);
+                return;
+            }
+            // uma única convolução (por canal) com o kernel composto
+            combinedFilter.processPlanar(acc, frames);
+            MultiChannelFir.interleave(acc, samples, CHANNELS, frames);
+            return;
+        }
+
+        for (int c = 0; c < CHANNELS; c++) {
+            System.arraycopy(acc[c], 0, tmp[c], 0, frames);
+        }
+        combinedFilter.processPlanar(acc, frames);
+        fadeFilter.processPlanar(tmp, frames);
+
+        // y = y_antigo + a[n] * (y_novo - y_antigo), a: 0 → 1
+        for (int c = 0; c < CHANNELS; c++) {
+            float[] yOld = acc[c];
+            float[] diff = tmp[c];
+            for (int n = 0; n < frames; n++) {
+                diff[n] -= yOld[n];
             }
+            fade.accumulate(yOld, diff, frames);
+        }
+        fade.advance(frames);
+        MultiChannelFir.interleave(acc, samples, CHANNELS, frames);
+
+        if (fade.isSteady()) {
+            // fim do crossfade: o filtro novo passa a ser o ativo
+            MultiChannelFir t = combinedFilter;
+            combinedFilter = fadeFilter;
+            fadeFilter = t;
+            System.arraycopy(nextKernel, 0, activeKernel, 0, activeKernel.length);
+            activeIdentity = kernelLoaded.identity;
+            fading = false;
+            fade.jumpTo(0f);
+        }
+    }
+
+    /** Amostras de histórico (por canal) de que os FIRs dependem: N - 1. */
+    public int getHistoryFrames() {
+        return bands[0].getNumTaps() - 1;
+    }
+
+    /**
+     * Alimenta só o histórico de todos os filtros com um trecho intercalado
+     * que precede o próximo bloco, sem gerar saída nem mexer em ganhos e
+     * rampas. Com {@link #getHistoryFrames()} frames, o engine passa a
+     * produzir exatamente o que produziria se tivesse processado o sinal
+     * desde o início (usado pelo ParallelEqualizer).
+     */
+    public void primeHistory(float[] samples, int length) {
+        int frames = length / CHANNELS;
+        if (frames <= 0) return;
+
+        ensureCapacity(frames);
+        MultiChannelFir.deinterleave(samples, dry, CHANNELS, frames);
+        for (int b = 0; b < 5; b++) {
+            bands[b].feedPlanar(dry, frames);
+        }
+        combinedFilter.feedPlanar(dry, frames);
+    }
+
+    /** Cresce os buffers de trabalho (só acontece fora do regime permanente). */
+    private void ensureCapacity(int frames) {
+        if (dry[0].length < frames) {
+            dry = new float[CHANNELS][frames];
+            acc = new float[CHANNELS][frames];
+            tmp = new float[CHANNELS][frames];
         }
+    }
 
-        // 5) LIMITER SUAVE DE PICO (normalização de bloco)
+    private static void limitPeak(float[] acc, int length) {
         float threshold = 0.95f;  // teto de segurança (< 1.0)
         float maxAbs = 0.0f;
 
@@ -121,8 +420,5 @@ public class EqualizerEngine {
                 acc[n] *= scale;
             }
         }
-
-        // 6) escreve saída final de volta em samples
-        System.arraycopy(acc, 0, samples, 0, length);
     }
 }
@@ -0,0 +1,142 @@
+import java.util.Arrays;
+
+/**
+ * Convolução FIR por blocos via FFT (overlap-save).
+ *
+ * Cada quadro da FFT contém as últimas N-1 amostras de entrada (histórico)
+ * seguidas de até L-N+1 amostras novas; as saídas válidas começam no índice
+ * N-1, onde a convolução circular coincide com a linear. Como h e x são
+ * reais, dois quadros consecutivos vão juntos numa única FFT complexa
+ * (um na parte real, outro na imaginária).
+ *
+ * Não há latência extra: cada chamada de {@link #process} devolve a saída
+ * correspondente às amostras recebidas, igual à forma direta.
+ */
+public class FftConvolver {
+
+    private final int N;          // número de taps
+    private final int fftSize;    // L (potência de 2)
+    private final int hop;        // amostras novas por quadro = L - N + 1
+
+    // espectro do kernel H = FFT(h)
+    private final double[] kernelRe;
+    private final double[] kernelIm;
+
+    // buffers de trabalho da FFT
+    private final double[] re;
+    private final double[] im;
+
+    // histórico (N-1 amostras) seguido das amostras novas de dois quadros
+    private final float[] line;
+
+    private final FftPlan plan;
+
+    public FftConvolver(double[] h) {
+        this.N = h.length;
+        this.fftSize = Integer.highestOneBit(Math.max(1, N - 1)) << 3;
+        this.hop = fftSize - N + 1;
+
+        this.kernelRe = new double[fftSize];
+        this.kernelIm = new double[fftSize];
+        this.re = new double[fftSize];
+        this.im = new double[fftSize];
+        this.line = new float[(N - 1) + 2 * hop];
+
+        this.plan = new FftPlan(fftSize);
+
+        setKernel(h);
+    }
+
+    /**
+     * Recalcula o espectro do kernel (mesmo número de taps).
+     * O histórico de entrada é preservado.
+     */
+    public void setKernel(double[] h) {
+        System.arraycopy(h, 0, kernelRe, 0, N);
+        Arrays.fill(kernelRe, N, fftSize, 0.0);
+        Arrays.fill(kernelIm, 0.0);
+        plan.transform(kernelRe, kernelIm);
+    }
+
+    /**
+     * Só atualiza o histórico com as amostras (sem filtrar), para que o
+     * filtro continue "aquecido" enquanto sua saída não é usada.
+     */
+    public void feedHistory(float[] samples, int length) {
+        int hist = N - 1;
+        if (length >= hist) {
+            System.arraycopy(samples, length - hist, line, 0, hist);
+        } else {
+            System.arraycopy(line, length, line, 0, hist - length);
+            System.arraycopy(samples, 0, line, hist - length, length);
+        }
+    }
+
+    /** Copia o histórico de entrada de outro convolver com o mesmo N. */
+    public void copyStateFrom(FftConvolver other) {
+        System.arraycopy(other.line, 0, line, 0, N - 1);
+    }
+
+    public int getFftSize() {
+        return fftSize;
+    }
+
+    /**
+     * Filtra IN-PLACE um bloco de samples, mantendo o histórico entre chamadas.
+     */
+    public void process(float[] samples, int length) {
+        int hist = N - 1;
+        int pos = 0;
+
+        while (pos < length) {
+            int n1 = Math.min(hop, length - pos);
+            int n2 = Math.min(hop, length - pos - n1);
+
+            // line = [histórico | quadro 1 | quadro 2]
+            System.arraycopy(samples, pos, line, hist, n1 + n2);
+
+            // quadro 1 na parte real, quadro 2 na parte imaginária
+            int len1 = hist + n1;
+            int len2 = hist + n2;
+            for (int j = 0; j < len1; j++) {
+                re[j] = line[j];
+            }
+            for (int j = len1; j < fftSize; j++) {
+                re[j] = 0.0;
+            }
+            for (int j = 0; j < len2; j++) {
+                im[j] = line[n1 + j];
+            }
+            for (int j = len2; j < fftSize; j++) {
+                im[j] = 0.0;
+            }
+
+            // atualiza histórico: últimas N-1 entradas
+            System.arraycopy(line, n1 + n2, line, 0, hist);
+
+            // Y = X · H
+            plan.transform(re, im);
+            for (int k = 0; k < fftSize; k++) {
+                double a = re[k];
+                double b = im[k];
+                double c = kernelRe[k];
+                double d = kernelIm[k];
+                re[k] = a * c - b * d;
+                im[k] = a * d + b * c;
+            }
+
+            // IFFT(Y) = swap(FFT(swap(Y))) / L
+            plan.transform(im, re);
+
+            double scale = 1.0 / fftSize;
+            for (int j = 0; j < n1; j++) {
+                samples[pos + j] = (float) (re[hist + j] * scale);
+            }
+            for (int j = 0; j < n2; j++) {
+                samples[pos + n1 + j] = (float) (im[hist + j] * scale);
+            }
+
+            pos += n1 + n2;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Plano de FFT complexa para um tamanho fixo (potência de 2).
+ *
+ * Tudo que só depende de n é calculado uma vez no construtor: a tabela de
+ * bit-reversal e os twiddles e^{-2πik/n}. {@link #transform} não aloca e
+ * não chama cos/sin, então o mesmo plano pode ser usado a cada bloco no
+ * thread de áudio. Não guarda estado entre chamadas: um plano pode ser
+ * compartilhado por vários objetos (e threads).
+ *
+ * Os estágios são radix-4 (dois estágios radix-2 por passada, com a
+ * multiplicação por -i feita como troca de partes): ~25% menos
+ * multiplicações e metade das passadas pela memória. Com log2(n) ímpar,
+ * o primeiro estágio é um radix-2 sem twiddles.
+ *
+ * Para entrada real, ver {@link RealFft}.
+ */
+public final class FftPlan {
+
+    private final int n;
+    private final int[] bitReverse;
+    private final double[] cosTable;   // cos(-2πk/n), k < n
+    private final double[] sinTable;   // sin(-2πk/n), k < n
+
+    public FftPlan(int n) {
+        if (n < 1 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("Tamanho da FFT deve ser potência de 2: " + n);
+        }
+        this.n = n;
+
+        this.cosTable = new double[n];
+        this.sinTable = new double[n];
+        for (int k = 0; k < n; k++) {
+            double theta = -2.0 * Math.PI * k / n;
+            cosTable[k] = Math.cos(theta);
+            sinTable[k] = Math.sin(theta);
+        }
+
+        int logN = Integer.numberOfTrailingZeros(n);
+        this.bitReverse = new int[n];
+        for (int i = 0; i < n; i++) {
+            bitReverse[i] = (logN == 0) ? 0 : Integer.reverse(i) >>> (32 - logN);
+        }
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /** FFT direta in-place de (real, imag), ambos com pelo menos n posições. */
+    public void transform(double[] real, double[] imag) {
+        // bit-reversal
+        for (int i = 0; i < n; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                double tr = real[i];
+                real[i] = real[j];
+                real[j] = tr;
+
+                double ti = imag[i];
+                imag[i] = imag[j];
+                imag[j] = ti;
+            }
+        }
+
+        int q = 1;
+        if ((Integer.numberOfTrailingZeros(n) & 1) != 0) {
+            // log2(n) ímpar: um estágio radix-2 (twiddle = 1)
+            for (int k = 0; k < n; k += 2) {
+                double tr = real[k + 1];
+                double ti = imag[k + 1];
+                real[k + 1] = real[k] - tr;
+                imag[k + 1] = imag[k] - ti;
+                real[k] += tr;
+                imag[k] += ti;
+            }
+            q = 2;
+        }
+
+        // estágios radix-4: junta 4 DFTs de tamanho q numa de tamanho 4q.
+        // Depois do bit-reversal, os blocos de q em [k, k+4q) são as DFTs
+        // das amostras 4r, 4r+2, 4r+1 e 4r+3 (nessa ordem).
+        for (; q < n; q <<= 2) {
+            int m = q << 2;
+            int step = n / m;
+
+            for (int k = 0; k < n; k += m) {
+                for (int j = 0; j < q; j++) {
+                    int i0 = k + j;
+                    int i1 = i0 + q;
+                    int i2 = i1 + q;
+                    int i3 = i2 + q;
+
+                    // B_p = W_m^{pj} · A_p  (A_1 está em i2, A_2 em i1)
+                    int t = j * step;
+                    double w1r = cosTable[t],     w1i = sinTable[t];
+                    double w2r = cosTable[2 * t], w2i = sinTable[2 * t];
+                    double w3r = cosTable[3 * t], w3i = sinTable[3 * t];
+
+                    double b0r = real[i0];
+                    double b0i = imag[i0];
+                    double b1r = w1r * real[i2] - w1i * imag[i2];
+                    double b1i = w1r * imag[i2] + w1i * real[i2];
+                    double b2r = w2r * real[i1] - w2i * imag[i1];
+                    double b2i = w2r * imag[i1] + w2i * real[i1];
+                    double b3r = w3r * real[i3] - w3i * imag[i3];
+                    double b3i = w3r * imag[i3] + w3i * real[i3];
+
+                    double s02r = b0r + b2r, s02i = b0i + b2i;
+                    double d02r = b0r - b2r, d02i = b0i - b2i;
+                    double s13r = b1r + b3r, s13i = b1i + b3i;
+                    double d13r = b1r - b3r, d13i = b1i - b3i;
+
+                    // X[j] = s02 + s13; X[j+2q] = s02 - s13
+                    // X[j+q] = d02 - i·d13; X[j+3q] = d02 + i·d13
+                    real[i0] = s02r + s13r;
+                    imag[i0] = s02i + s13i;
+                    real[i2] = s02r - s13r;
+                    imag[i2] = s02i - s13i;
+                    real[i1] = d02r + d13i;
+                    imag[i1] = d02i - d13r;
+                    real[i3] = d02r - d13i;
+                    imag[i3] = d02i + d13r;
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,34 @@
 public class FirBandPass {
 
-    private final int N;         // número de coeficientes = 2K+1
-    private final double[] h;    // coeficientes FIR
-    private final float[] delay; // linha de atraso para convolução
-    private int index;           // índice circular
+    /**
+     * true → produto escalar da forma direta via Vector API.
+     * Exige --add-modules jdk.incubator.vector; -Deq.simd=false desliga.
+     */
+    public static final boolean SIMD_ENABLED = detectSimd();
+
+    /**
+     * A partir deste número de taps a convolução via FFT (overlap-save)
+     * custa menos por amostra que a forma direta. Limiares medidos com
+     * FirBandPassBenchmark (AVX-512):
+     *
+     *   sem SIMD: 48  (a forma direta escalar empata com a FFT entre 33 e 65 taps)
+     *   com SIMD: 224 (a forma direta segue mais rápida até ~200 taps;
+     *                  com os 129 taps padrão, 27 vs 50 ns/amostra)
+     *
+     * Então os 129 taps padrão usam a forma direta com SIMD e a FFT sem.
+     * Para medir de novo (varrer taps em volta do limiar, nas duas formas):
+     *   java -jar target/benchmarks.jar FirBandPassBenchmark -p taps=33,65,129,193,257
+     *   (e -jvmArgsAppend -Deq.simd=false para o laço escalar)
+     */
+    public static final int FFT_MIN_TAPS = SIMD_ENABLED ? 224 : 48;
+
+    private final int N;          // número de coeficientes = 2K+1
+    private final double[] h;     // coeficientes FIR
+    private final double[] hRev;  // h invertido: hRev[j] = h[N-1-j]
+    private final double[] delay; // linha de atraso duplicada (2N), linear
+    private int index;            // posição de escrita em [0, N)
+
+    private final FftConvolver fft; // != null → modo FFT (overlap-save)
 
     /**
      * @param fs      frequência de amostragem (ex.: 44100.0)
@@ -12,12 +37,71 @@ public class FirBandPass {
      * @param K       metade da largura da janela (N = 2K+1)
      */
     public FirBandPass(double fs, double fLow, double fHigh, int K) {
+        this(fs, fLow, fHigh, K, 2 * K + 1 >= FFT_MIN_TAPS);
+    }
+
+    /**
+     * @param useFft  true força a convolução via FFT, false força a forma direta
+     */
+    public FirBandPass(double fs, double fLow, double fHigh, int K, boolean useFft) {
         this.N = 2 * K + 1;          // comprimento 2K+1, como no enunciado
         this.h = new double[N];
-        this.delay = new float[N];
+        this.hRev = new double[N];
+        this.delay = new double[2 * N];
         this.index = 0;
 
         design(fs, fLow, fHigh, K);
+        reverseInto(h, hRev);
+
+        this.fft = useFft ? new FftConvolver(h) : null;
+    }
+
+    /**
+     * Cria o filtro a partir de coeficientes já prontos (ex.: kernel
+     * composto do equalizador). O comprimento define N.
+     */
+    public FirBandPass(double[] coefficients) {
+        this(coefficients, coefficients.length >= FFT_MIN_TAPS);
+    }
+
+    public FirBandPass(double[] coefficients, boolean useFft) {
+        this.N = coefficients.length;
+        this.h = coefficients.clone();
+        this.hRev = new double[N];
+        this.delay = new double[2 * N];
+        this.index = 0;
+        reverseInto(h, hRev);
+
+        this.fft = useFft ? new FftConvolver(h) : null;
+    }
+
+    public int getNumTaps() {
+        return N;
+    }
+
+    /** Cópia dos coeficientes h[0..N-1]. */
+    public double[] getCoefficients() {
+        return h.clone();
+    }
+
+    /**
+     * Troca os coeficientes sem perder a linha de atraso,
+     * de modo que a saída continua sem descontinuidade de estado.
+     */
+    public void setCoefficients(double[] coefficients) {
+        if (coefficients.length != N) {
+            throw new IllegalArgumentException(
+                    "Esperado " + N + " coeficientes, recebido " + coefficients.length);
+        }
+        System.arraycopy(coefficients, 0, h, 0, N);
+        reverseInto(h, hRev);
+        if (fft != null) {
+            fft.setKernel(h);
+        }
+    }
+
+    public boolean isFftMode() {
+        return fft != null;
     }
 
     /**
@@ -67,31 +151,98 @@ public class FirBandPass {
 
     /**
      * Processa um bloco de samples (em float) in-place,
-     * aplicando convolução FIR com buffer circular.
+     * aplicando convolução FIR na forma direta
+     * (ou overlap-save, no modo FFT).
+     *
+     * A linha de atraso é duplicada: cada amostra é escrita em delay[index]
+     * e delay[index + N], de modo que as N últimas entradas ficam sempre
+     * contíguas em delay[index+1 .. index+N] (mais recente no fim). O produto
+     * escalar com hRev não tem desvio nem índice circular e pode usar SIMD.
      */
     public void processBlock(float[] samples, int length) {
+        if (fft != null) {
+            fft.process(samples, length);
+            return;
+        }
+
         for (int i = 0; i < length; i++) {
-            // insere amostra atual no buffer circular
-            delay[index] = samples[i];
-
-            // convolução: y[i] = Σ h[k] * delay[index-k]
-            double acc = 0.0;
-            int idx = index;
-            for (int k = 0; k < N; k++) {
-                acc += h[k] * delay[idx];
-                idx--;
-                if (idx < 0) {
-                    idx = N - 1;
+            double x = samples[i];
+            delay[index] = x;
+            delay[index + N] = x;
+
+            // y[i] = Σ h[k] * x[i-k] = Σ hRev[j] * delay[index+1+j]
+            int base = index + 1;
+            double acc;
+            if (SIMD_ENABLED) {
+                acc = SimdFir.dot(hRev, delay, base, N);
+            } else {
+                acc = 0.0;
+                for (int j = 0; j < N; j++) {
+                    acc += hRev[j] * delay[base + j];
                 }
             }
 
             samples[i] = (float) acc;
 
-            // avança índice circular
+            // avança posição de escrita
             index++;
             if (index >= N) {
                 index = 0;
             }
         }
     }
+
+    /**
+     * Empurra as amostras na linha de atraso sem calcular a saída
+     * (filtro ocioso que precisa continuar com o histórico em dia).
+     */
+    public void feedHistory(float[] samples, int length) {
+        if (fft != null) {
+            fft.feedHistory(samples, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            double x = samples[i];
+            delay[index] = x;
+            delay[index + N] = x;
+            index++;
+            if (index >= N) {
+                index = 0;
+            }
+        }
+    }
+
+    /** Copia o estado (histórico de entrada) de outro filtro com o mesmo N e modo. */
+    public void copyStateFrom(FirBandPass other) {
+        if (other.N != N || (other.fft == null) != (fft == null)) {
+            throw new IllegalArgumentException("Filtros incompatíveis");
+        }
+        System.arraycopy(other.delay, 0, delay, 0, delay.length);
+        index = other.index;
+        if (fft != null) {
+            fft.copyStateFrom(other.fft);
+        }
+    }
+
+    private static void reverseInto(double[] src, double[] dst) {
+        int n = src.length;
+        for (int j = 0; j < n; j++) {
+            dst[j] = src[n - 1 - j];
+        }
+    }
+
+    private static boolean detectSimd() {
+        if (!Boolean.parseBoolean(System.getProperty("eq.simd", "true"))) {
+            return false;
+        }
+        // sem o módulo no boot layer, SimdFir nem pode ser carregada
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return SimdFir.isSupported();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
 }
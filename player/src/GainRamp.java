@@ -0,0 +1,91 @@
+/**
+ * Rampa linear de um fator de ganho, amostra a amostra.
+ *
+ * Quando o alvo muda, o fator vai do valor atual até o novo alvo em
+ * rampFrames amostras, em vez de saltar no início do próximo bloco
+ * (o degrau é audível como clique). Em regime (sem rampa) o custo é o de
+ * uma multiplicação por constante. Não aloca nada.
+ */
+public final class GainRamp {
+
+    private float value;     // fator aplicado no fim do último bloco
+    private float target;
+    private float step;      // incremento por amostra durante a rampa
+    private int remaining;   // amostras que faltam para chegar ao alvo
+
+    public GainRamp(float initial) {
+        jumpTo(initial);
+    }
+
+    /** Novo alvo; a rampa recomeça a partir do valor atual. */
+    public void setTarget(float newTarget, int rampFrames) {
+        if (newTarget == target) {
+            return; // mantém a rampa em andamento, se houver
+        }
+        target = newTarget;
+        if (rampFrames <= 0 || value == newTarget) {
+            jumpTo(newTarget);
+        } else {
+            step = (newTarget - value) / rampFrames;
+            remaining = rampFrames;
+        }
+    }
+
+    /** Vai direto para o valor, sem rampa. */
+    public void jumpTo(float v) {
+        value = v;
+        target = v;
+        step = 0f;
+        remaining = 0;
+    }
+
+    public boolean isSteady() {
+        return remaining == 0;
+    }
+
+    public float value() {
+        return value;
+    }
+
+    public float target() {
+        return target;
+    }
+
+    /**
+     * y[n] += g[n] * x[n] para n = 0..frames-1, com g seguindo a rampa.
+     * Não avança o estado: chame uma vez por canal e depois {@link #advance}.
+     */
+    public void accumulate(float[] y, float[] x, int frames) {
+        if (remaining == 0) {
+            float g = value;
+            for (int n = 0; n < frames; n++) {
+                y[n] += g * x[n];
+            }
+            return;
+        }
+
+        int k = Math.min(remaining, frames);
+        float v0 = value;
+        float s = step;
+        for (int n = 0; n < k; n++) {
+            y[n] += (v0 + (n + 1) * s) * x[n];
+        }
+        float g = target;
+        for (int n = k; n < frames; n++) {
+            y[n] += g * x[n];
+        }
+    }
+
+    /** Avança a rampa em frames amostras. */
+    public void advance(int frames) {
+        if (remaining == 0) {
+            return;
+        }
+        if (frames >= remaining) {
+            jumpTo(target);
+        } else {
+            value += frames * step;
+            remaining -= frames;
+        }
+    }
+}
@@ -1,88 +1,314 @@
-import java.io.*;
-import java.net.Socket;
-import java.net.ServerSocket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+/**
+ * Recebe comandos de ganho por TCP: linhas JSON ou registros binários de
+ * tamanho fixo ({@link GainRecord}), misturados livremente.
+ *
+ * Um único thread com Selector (NIO) atende qualquer número de clientes
+ * simultâneos, cada um numa conexão persistente: as mensagens de cada
+ * conexão são aplicadas na ordem em que chegam. Uma linha inválida é
+ * descartada sem derrubar a conexão nem o servidor.
+ *
+ * Entre clientes vale o último comando a chegar. A sequência dos
+ * registros só é comparada dentro da mesma conexão (cada cliente tem a
+ * sua numeração, e um cliente reconectado começa numa conexão nova).
+ *
+ * Rajadas são agrupadas: tudo o que chega numa mesma volta do Selector
+ * vira um único snapshot de ganhos, só com o último valor de cada banda
+ * (um kernel recalculado por rajada, não por mensagem). Um registro com
+ * várias bandas só é lido quando chegou inteiro, então nunca é aplicado
+ * pela metade, mesmo que o TCP o divida entre leituras.
+ *
+ * A latência é medida só neste processo, da leitura do comando no socket
+ * até o primeiro bloco de áudio que o aplica (System.nanoTime de outra JVM
+ * tem outra origem e não pode ser subtraído daqui), e é publicada no log a
+ * cada REPORT_INTERVAL_MS.
+ */
 public class GainServer {
 
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final long REPORT_INTERVAL_MS = 5000;
+
     private final int port;
     private final EqualizerEngine eqEngine;
     private volatile boolean running = true;
+    private volatile Selector selector;
     private final ObjectMapper mapper = new ObjectMapper();
 
+    // comandos recebidos desde a última publicação (só thread do servidor)
+    private final double[] pending = new double[5];   // NaN = banda sem mudança
+    private long pendingReceived = Long.MAX_VALUE;    // chegada do comando mais antigo do lote
+    private int pendingCommands = 0;
+
+    private long lastReportedCount = 0;
+    private long lastReportNanos = System.nanoTime();
+
     public GainServer(int port, EqualizerEngine eqEngine) {
         this.port = port;
         this.eqEngine = eqEngine;
+        Arrays.fill(pending, Double.NaN);
+    }
+
+    /**
+     * Estado de uma conexão: bytes de mensagem ainda incompleta e a última
+     * sequência aceita por banda deste cliente.
+     */
+    static final class Connection {
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        final long[] lastSeq = new long[5];
+        final String remote;
+
+        Connection(String remote) {
+            this.remote = remote;
+            Arrays.fill(lastSeq, Long.MIN_VALUE);
+        }
     }
 
     public void start() {
-        new Thread(() -> {
-            try (ServerSocket server = new ServerSocket(port)) {
-                System.out.println("[GainServer] Listening on TCP port " + port);
+        new Thread(this::serve, "gain-server").start();
+    }
 
-                while (running) {
-                    try (Socket client = server.accept()) {
-                        System.out.println("[GainServer] Client connected");
+    private void serve() {
+        try (Selector sel = Selector.open();
+             ServerSocketChannel server = ServerSocketChannel.open()) {
 
-                        BufferedReader reader =
-                                new BufferedReader(new InputStreamReader(client.getInputStream()));
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(sel, SelectionKey.OP_ACCEPT);
+            selector = sel;
+            System.out.println("[GainServer] Listening on TCP port " + port);
 
-                        String line;
-                        while ((line = reader.readLine()) != null) {
+            while (running) {
+                sel.select(REPORT_INTERVAL_MS);
 
-                            Map<String, Object> msg =
-                                    mapper.readValue(line, Map.class);
+                Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
 
-                            handleMessage(msg);
-                        }
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept(server, sel);
+                    } else if (key.isReadable()) {
+                        read(key);
                     }
                 }
 
-            } catch (Exception e) {
-                System.err.println("[GainServer] Error: " + e);
+                publishPending();
+                reportLatency();
             }
-        }).start();
+
+            for (SelectionKey key : sel.keys()) {
+                key.channel().close();
+            }
+
+        } catch (IOException e) {
+            System.err.println("[GainServer] Error: " + e);
+        }
     }
 
-    private void handleMessage(Map<String, Object> msg) {
-    String type = (String) msg.get("type");
+    /**
+     * Aceita uma conexão. Uma falha aqui (ex.: limite de arquivos abertos)
+     * só perde esse cliente: o servidor continua atendendo os demais.
+     */
+    private void accept(ServerSocketChannel server, Selector sel) {
+        SocketChannel ch = null;
+        try {
+            ch = server.accept();
+            if (ch == null) return;
 
-    if ("setGain".equals(type)) {
-        int band = (int) msg.get("band");
-        double gain = (double) msg.get("gainDb");
+            ch.configureBlocking(false);
+            ch.socket().setTcpNoDelay(true);
+            String remote = String.valueOf(ch.getRemoteAddress());
+            ch.register(sel, SelectionKey.OP_READ, new Connection(remote));
+            System.out.println("[GainServer] Client connected: " + remote);
+        } catch (IOException e) {
+            System.err.println("[GainServer] Falha ao aceitar conexão: " + e);
+            if (ch != null) {
+                try {
+                    ch.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
 
-        eqEngine.setBandGainDb(band, gain);
+    private void read(SelectionKey key) {
+        SocketChannel ch = (SocketChannel) key.channel();
+        Connection conn = (Connection) key.attachment();
 
-        System.out.printf(
-            "[EQ-UPDATE] Banda %d (%s) ajustada para %.1f dB%n",
-            band,
-            getBandName(band),
-            gain
-        );
+        int n;
+        try {
+            n = ch.read(conn.in);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            System.out.println("[GainServer] Client disconnected: " + conn.remote);
+            key.cancel();
+            try {
+                ch.close();
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+
+        ByteBuffer in = conn.in;
+        in.flip();
+        parse(conn, System.nanoTime());
+        in.compact();
+
+        if (!in.hasRemaining()) {
+            if (in.capacity() >= MAX_LINE_BYTES) {
+                System.err.println("[GainServer] Linha longa demais de " + conn.remote + ", descartada");
+                in.clear();
+            } else {
+                ByteBuffer bigger = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                bigger.put(in);
+                conn.in = bigger;
+            }
+        }
     }
 
-    if ("setAll".equals(type)) {
-        System.out.println("[EQ-UPDATE] Atualização de todas as bandas:");
-
-        for (int i = 0; i < 5; i++) {
-            String key = "band" + i;
-            if (msg.containsKey(key)) {
-                double gain = (double) msg.get(key);
-                eqEngine.setBandGainDb(i, gain);
-
-                System.out.printf(
-                        "   - Banda %d (%s) -> %.1f dB%n",
-                        i,
-                        getBandName(i),
-                        gain
-                );
+    /**
+     * Trata as mensagens completas de conn.in (entre position e limit):
+     * registro binário (começa com MAGIC) ou linha JSON até '\n'. Deixa
+     * position no início do resto (mensagem incompleta), para a próxima leitura.
+     */
+    void parse(Connection conn, long receivedNanos) {
+        ByteBuffer in = conn.in;
+        byte[] buf = in.array();
+        int start = in.position();
+        int limit = in.limit();
+        while (start < limit) {
+            if (buf[start] == GainRecord.MAGIC) {
+                if (limit - start < GainRecord.HEADER_SIZE) break;
+                int size = GainRecord.size(in, start);
+                if (limit - start < size) break;
+                handleRecord(conn, start, receivedNanos);
+                start += size;
+                continue;
             }
+
+            int eol = start;
+            while (eol < limit && buf[eol] != '\n') eol++;
+            if (eol == limit) break;
+
+            handleLine(conn, new String(buf, start, eol - start, StandardCharsets.UTF_8), receivedNanos);
+            start = eol + 1;
         }
+        in.position(start);
+    }
 
-        System.out.println("[EQ-UPDATE] Todas as bandas aplicadas.\n");
+    private void handleRecord(Connection conn, int off, long receivedNanos) {
+        ByteBuffer in = conn.in;
+        long seq = GainRecord.seq(in, off);
+        int n = GainRecord.count(in, off);
+        for (int i = 0; i < n; i++) {
+            offer(conn, GainRecord.band(in, off, i), GainRecord.gainDb(in, off, i), seq, receivedNanos);
+        }
+    }
+
+    private void handleLine(Connection conn, String line, long receivedNanos) {
+        line = line.trim();
+        if (line.isEmpty()) return;
+
+        try {
+            Map<String, Object> msg = mapper.readValue(line, Map.class);
+            handleMessage(conn, msg, receivedNanos);
+        } catch (Exception e) {
+            System.err.println("[GainServer] Mensagem ignorada (" + e + "): " + line);
+        }
+    }
+
+    private void handleMessage(Connection conn, Map<String, Object> msg, long receivedNanos) {
+        String type = (String) msg.get("type");
+
+        long seq = (msg.get("seq") instanceof Number n) ? n.longValue() : Long.MIN_VALUE;
+
+        if ("setGain".equals(type)) {
+            // inteiros ("gainDb": 6) e decimais chegam como Number
+            int band = ((Number) msg.get("band")).intValue();
+            double gain = ((Number) msg.get("gainDb")).doubleValue();
+            offer(conn, band, gain, seq, receivedNanos);
+        }
+
+        if ("setAll".equals(type)) {
+            for (int i = 0; i < 5; i++) {
+                if (msg.get("band" + i) instanceof Number gain) {
+                    offer(conn, i, gain.doubleValue(), seq, receivedNanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Guarda o comando no lote atual (último valor por banda, na ordem de
+     * chegada). Com sequência, um comando mais antigo que o último que a
+     * mesma conexão já enviou para a banda é descartado; sem sequência
+     * (JSON antigo), só vale a ordem de chegada.
+     */
+    private void offer(Connection conn, int band, double gainDb, long seq, long receivedNanos) {
+        if (band < 0 || band >= 5 || Double.isNaN(gainDb)) {
+            System.err.println("[GainServer] Comando ignorado: banda " + band + ", " + gainDb + " dB");
+            return;
+        }
+        if (seq != Long.MIN_VALUE) {
+            if (seq < conn.lastSeq[band]) return;
+            conn.lastSeq[band] = seq;
+        }
+
+        pending[band] = gainDb;
+        pendingReceived = Math.min(pendingReceived, receivedNanos);
+        pendingCommands++;
+    }
+
+    /** Publica o lote acumulado como um único snapshot de ganhos. */
+    void publishPending() {
+        if (pendingCommands == 0) return;
+
+        eqEngine.setGainsDb(pending, pendingReceived);
+
+        StringBuilder log = new StringBuilder("[EQ-UPDATE]");
+        for (int b = 0; b < 5; b++) {
+            if (!Double.isNaN(pending[b])) {
+                log.append(String.format(" %s=%.1f dB", getBandName(b), pending[b]));
+            }
+        }
+        log.append(" (").append(pendingCommands).append(pendingCommands == 1 ? " comando)" : " comandos)");
+        System.out.println(log);
+
+        Arrays.fill(pending, Double.NaN);
+        pendingReceived = Long.MAX_VALUE;
+        pendingCommands = 0;
+    }
+
+    /** Percentis da latência chegada → áudio, quando houve mudanças novas. */
+    private void reportLatency() {
+        LatencyHistogram latency = eqEngine.getUpdateLatency();
+        long count = latency.getCount();
+        if (count == lastReportedCount) return;
+
+        long now = System.nanoTime();
+        if (now - lastReportNanos < REPORT_INTERVAL_MS * 1_000_000L) return;
+
+        lastReportNanos = now;
+        lastReportedCount = count;
+        System.out.println("[GainServer] Latência chegada→áudio: " + latency.summary());
     }
-}
 
     private String getBandName(int band) {
         return switch (band) {
@@ -98,5 +324,9 @@ public class GainServer {
 
     public void stop() {
         running = false;
+        Selector sel = selector;
+        if (sel != null) {
+            sel.wakeup();
+        }
     }
 }
@@ -0,0 +1,78 @@
+/**
+ * Conjunto imutável de ganhos do equalizador, junto com o kernel combinado
+ * h = δ + Σ (G_i - 1) * h_i correspondente.
+ *
+ * O EqualizerEngine publica cada atualização como um novo GainSnapshot
+ * numa única referência atômica; o thread de áudio lê essa referência uma
+ * vez por bloco e sempre enxerga todas as bandas da mesma atualização,
+ * sem trava. Os arrays nunca são modificados depois da construção.
+ */
+public final class GainSnapshot {
+
+    final double[] gainDb;
+    final double[] gainLin;
+    final double[] kernel;   // kernel combinado (δ em n = 0)
+    final boolean identity;  // todos os ganhos em 0 dB
+    final long originNanos;  // System.nanoTime() (deste processo) da chegada do pedido
+
+    GainSnapshot(double[] gainDb, double[][] bandKernels, long originNanos) {
+        this.originNanos = originNanos;
+        int numBands = gainDb.length;
+        this.gainDb = gainDb.clone();
+        this.gainLin = new double[numBands];
+        this.kernel = new double[bandKernels[0].length];
+        kernel[0] = 1.0; // δ[n]
+
+        boolean allUnity = true;
+        for (int b = 0; b < numBands; b++) {
+            double G = Math.pow(10.0, gainDb[b] / 20.0);
+            gainLin[b] = G;
+
+            if (Math.abs(G - 1.0) < 1e-6) {
+                continue;
+            }
+            allUnity = false;
+
+            double[] hb = bandKernels[b];
+            for (int n = 0; n < kernel.length; n++) {
+                kernel[n] += (G - 1.0) * hb[n];
+            }
+        }
+        this.identity = allUnity;
+    }
+
+    /** Todas as bandas em 0 dB. */
+    static GainSnapshot flat(int numBands, double[][] bandKernels) {
+        return new GainSnapshot(new double[numBands], bandKernels, System.nanoTime());
+    }
+
+    /**
+     * Novo snapshot com as bandas de db trocadas; NaN mantém o ganho atual.
+     */
+    GainSnapshot with(double[] db, double[][] bandKernels) {
+        return with(db, bandKernels, System.nanoTime());
+    }
+
+    /**
+     * Idem, registrando quando o pedido chegou ao player (System.nanoTime
+     * deste processo), para medir a latência até o bloco de áudio que
+     * aplica a mudança.
+     */
+    GainSnapshot with(double[] db, double[][] bandKernels, long originNanos) {
+        double[] next = gainDb.clone();
+        for (int b = 0; b < next.length && b < db.length; b++) {
+            if (!Double.isNaN(db[b])) {
+                next[b] = db[b];
+            }
+        }
+        return new GainSnapshot(next, bandKernels, originNanos);
+    }
+
+    public double getGainDb(int band) {
+        return gainDb[band];
+    }
+
+    public boolean isIdentity() {
+        return identity;
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências em escala logarítmica (resolução em µs, 8
+ * sub-baldes por oitava: erro relativo < 12,5%).
+ *
+ * record() não aloca nem trava, então pode ser chamado do thread de áudio;
+ * os percentis são lidos de outro thread (contagens aproximadas enquanto há
+ * gravações concorrentes, o que basta para monitoração).
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;   // sub-baldes por oitava
+    private static final int BUCKETS = 40 * SUB;    // até ~2^41 µs
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos / 1000));
+        total.incrementAndGet();
+
+        long m;
+        while (nanos > (m = maxNanos.get())) {
+            if (maxNanos.compareAndSet(m, nanos)) break;
+        }
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * Percentil p (0..1) em ms, pelo limite superior do balde.
+     */
+    public double percentileMs(double p) {
+        long n = total.get();
+        if (n == 0) return 0.0;
+
+        long rank = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperMicros(i) / 1000.0, getMaxMs());
+            }
+        }
+        return getMaxMs();
+    }
+
+    public double getMaxMs() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /** Resumo de uma linha: n, p50, p90, p99 e máximo. */
+    public String summary() {
+        return String.format("n=%d p50=%.2f ms p90=%.2f ms p99=%.2f ms max=%.2f ms",
+                getCount(), percentileMs(0.50), percentileMs(0.90),
+                percentileMs(0.99), getMaxMs());
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB) {
+            return (int) micros;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);   // >= SUB_BITS
+        int sub = (int) ((micros >>> (exp - SUB_BITS)) & (SUB - 1));
+        int idx = (exp - SUB_BITS + 1) * SUB + sub;
+        return Math.min(idx, BUCKETS - 1);
+    }
+
+    private static long upperMicros(int idx) {
+        return lowerMicros(idx + 1);
+    }
+
+    private static long lowerMicros(int idx) {
+        if (idx < SUB) {
+            return idx;
+        }
+        int exp = idx / SUB + SUB_BITS - 1;
+        int sub = idx % SUB;
+        return (long) (SUB + sub) << (exp - SUB_BITS);
+    }
+}
@@ -5,6 +5,9 @@ import javazoom.jl.decoder.SampleBuffer;
 
 import javax.sound.sampled.*;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 /**
@@ -19,32 +22,80 @@ public class Mp3RealTimeDecoder {
     private static final float SAMPLE_RATE = 44100f;
     private static final int CHANNELS = 2; // JLayer saída estéreo
 
+    // capacidade das filas entre os estágios do pipeline (blocos)
+    private static final int DECODED_RING = 8;
+    private static final int PLAYBACK_RING = 4;   // pequena: é latência até o alto-falante
+    private static final int WAV_RING = 64;       // ~1,5 s para absorver picos do disco
+    private static final int ANALYSIS_RING = 4;
+
     private final File mp3File;
     private final int blockSizeFrames;
-    private boolean playing = false;
+    private volatile boolean playing = false;
     private boolean outputAudio = false;  // se true, envia para alto-falante
-    private final EqualizerEngine eqEngine = new EqualizerEngine();
+    private File outputFile = new File("output_eq.wav");
+    private long framesWritten = 0;
+    private volatile long underruns = 0;
+    private String pipelineReport = "";
+    private final EqualizerEngine eqEngine;
 
     public Mp3RealTimeDecoder(String path) {
         this(path, BLOCK_SIZE_SAMPLES);
     }
 
     public Mp3RealTimeDecoder(String path, int blockSizeFrames) {
+        this(path, blockSizeFrames, new EqualizerEngine());
+    }
+
+    /** Com um engine dado (testes). */
+    Mp3RealTimeDecoder(String path, int blockSizeFrames, EqualizerEngine eqEngine) {
         this.mp3File = new File(path);
         this.blockSizeFrames = blockSizeFrames;
+        this.eqEngine = eqEngine;
     }
 
     public void enableAudioOutput(boolean enable) {
         this.outputAudio = enable;
     }
 
+    /** Arquivo WAV de saída (padrão: output_eq.wav no diretório atual). */
+    public void setOutputFile(String path) {
+        this.outputFile = new File(path);
+    }
+
+    /** Frames (estéreo) gravados no WAV pela última chamada de start(). */
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    /** Vezes em que a placa de som ficou sem dados na última chamada de start(). */
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    /** Métricas por estágio e por fila da última chamada de start(). */
+    public String getPipelineReport() {
+        return pipelineReport;
+    }
+
     /**
      * Inicia o streaming real-time do MP3.
      * O callback opcional recebe blocos PCM já processados em float[-1,1].
+     *
+     * Pipeline: este thread só decodifica; equalização, placa de som,
+     * gravação do WAV e callback rodam em threads próprios, ligados por
+     * filas SPSC pré-alocadas ({@link BlockRing}). Um disco lento ou uma
+     * FFT demorada não seguram a reprodução: a fila do WAV absorve picos e
+     * a da análise descarta blocos quando o callback se atrasa.
+     *
+     * Uma falha da equalização (inclusive RuntimeException/Error) fecha as
+     * filas, para a decodificação e volta daqui como IOException depois que
+     * todos os estágios terminam: o WAV fica incompleto e não deve ser usado.
      */
     public void start(Consumer<float[]> onBlock) throws Exception {
 
         playing = true;
+        framesWritten = 0;
+        underruns = 0;
 
         try (InputStream fileStream =
                      new BufferedInputStream(new FileInputStream(mp3File))) {
@@ -72,60 +123,55 @@ public class Mp3RealTimeDecoder {
             }
 
             // Arquivo WAV de saída para debug (sempre salva o áudio processado)
-            File outFile = new File("output_eq.wav");
-            try (RandomAccessFile wavOut = new RandomAccessFile(outFile, "rw")) {
-                wavOut.setLength(0); // limpa se já existir
-                writeWavHeaderPlaceholder(wavOut, SAMPLE_RATE, CHANNELS, SAMPLE_SIZE_BITS);
+            try (WavFileSink wavOut = new WavFileSink(outputFile, (int) SAMPLE_RATE, CHANNELS)) {
 
-                // buffers de trabalho
+                // filas entre os estágios
                 int samplesPerBlock = blockSizeFrames * CHANNELS;
-                float[] floatBlock = new float[samplesPerBlock];
-                byte[] byteBlock = new byte[samplesPerBlock * 2]; // 16 bits = 2 bytes
-                int floatPos = 0;
-                long dataBytesWritten = 0;
+                BlockRing decoded = new BlockRing("decodificado", DECODED_RING, samplesPerBlock);
+                BlockRing playback = (line != null)
+                        ? new BlockRing("placa de som", PLAYBACK_RING, samplesPerBlock) : null;
+                BlockRing toWav = new BlockRing("arquivo WAV", WAV_RING, samplesPerBlock);
+                BlockRing analysis = (onBlock != null)
+                        ? new BlockRing("análise", ANALYSIS_RING, samplesPerBlock) : null;
+
+                // tempo de cada estágio por bloco
+                LatencyHistogram decodeTime = new LatencyHistogram();
+                LatencyHistogram dspTime = new LatencyHistogram();
+                LatencyHistogram playbackTime = new LatencyHistogram();
+                LatencyHistogram wavTime = new LatencyHistogram();
+                LatencyHistogram analysisTime = new LatencyHistogram();
+
+                SourceDataLine out = line;
+                Throwable[] failure = new Throwable[1];
+                List<Thread> stages = new ArrayList<>();
+                stages.add(stage("eq-dsp", () -> {
+                    try {
+                        runDsp(decoded, playback, toWav, analysis, dspTime);
+                    } catch (Throwable t) {
+                        failure[0] = t;
+                    }
+                }));
+                stages.add(stage("eq-wav", () -> runWavWriter(toWav, wavOut, wavTime)));
+                if (playback != null) {
+                    stages.add(stage("eq-playback", () -> runPlayback(playback, out, playbackTime)));
+                }
+                if (analysis != null) {
+                    stages.add(stage("eq-analysis", () -> runAnalysis(analysis, onBlock, analysisTime)));
+                }
 
                 System.out.println("Iniciando decodificação em tempo real...");
 
-                // Loop de decodificação frame-a-frame
-                while (playing) {
-
-                    Header frameHeader = bitstream.readFrame();
-                    if (frameHeader == null) {
-                        break; // fim do MP3
-                    }
-
-                    SampleBuffer output = (SampleBuffer) decoder.decodeFrame(frameHeader, bitstream);
-                    short[] pcmSamples = output.getBuffer();
-                    int samplesDecoded = output.getBufferLength(); // L,R,L,R,...
-
-                    // Copia samples decodificados para o bloco float
-                    for (int i = 0; i < samplesDecoded; i++) {
-                        if (floatPos >= floatBlock.length) {
-                            // bloco cheio → processa
-                            dataBytesWritten += processAndOutputBlock(
-                                    floatBlock, floatPos,
-                                    byteBlock, line, wavOut,
-                                    onBlock
-                            );
-                            floatPos = 0;
-                        }
-                        floatBlock[floatPos++] = pcmSamples[i] / 32768f;
+                try {
+                    decodeLoop(bitstream, decoder, decoded, decodeTime, () -> playing);
+                } finally {
+                    decoded.close(); // fim do fluxo: cada estágio esvazia sua fila e fecha a seguinte
+                    for (Thread t : stages) {
+                        t.join();
                     }
-
-                    bitstream.closeFrame();
                 }
 
-                // Processa bloco parcial (último)
-                if (floatPos > 0) {
-                    dataBytesWritten += processAndOutputBlock(
-                            floatBlock, floatPos,
-                            byteBlock, line, wavOut,
-                            onBlock
-                    );
-                }
-
-                // Atualiza cabeçalho WAV com tamanho correto
-                finalizeWavHeader(wavOut, dataBytesWritten, SAMPLE_RATE, CHANNELS, SAMPLE_SIZE_BITS);
+                // o cabeçalho WAV recebe os tamanhos finais no close()
+                framesWritten = wavOut.getFramesWritten();
 
                 if (outputAudio && line != null) {
                     line.drain();
@@ -134,11 +180,185 @@ public class Mp3RealTimeDecoder {
                 }
 
                 bitstream.close();
+
+                if (failure[0] != null) {
+                    throw new IOException("Falha na equalização de " + mp3File, failure[0]);
+                }
+
+                StringBuilder report = new StringBuilder();
+                report.append("[Pipeline] decodificação ").append(decodeTime.summary()).append('\n');
+                report.append("[Pipeline] DSP ").append(dspTime.summary()).append('\n');
+                report.append("[Pipeline] WAV ").append(wavTime.summary()).append('\n');
+                if (playback != null) {
+                    report.append("[Pipeline] placa de som ").append(playbackTime.summary()).append('\n');
+                }
+                if (analysis != null) {
+                    report.append("[Pipeline] análise ").append(analysisTime.summary()).append('\n');
+                }
+                for (BlockRing ring : new BlockRing[] { decoded, playback, toWav, analysis }) {
+                    if (ring != null) {
+                        report.append("[Pipeline] fila ").append(ring.stats()).append('\n');
+                    }
+                }
+                if (playback != null) {
+                    report.append("[Pipeline] underruns da placa de som: ").append(underruns).append('\n');
+                }
+                pipelineReport = report.toString();
+
+                System.out.print(pipelineReport);
                 System.out.println("Fim do MP3.");
             }
         }
     }
 
+    /**
+     * Estágio 1 (thread de start): MP3 → blocos float na fila decoded,
+     * enquanto running for verdadeiro. Também usado pelo OfflineRenderer.
+     */
+    static void decodeLoop(Bitstream bitstream, Decoder decoder, BlockRing decoded,
+                           LatencyHistogram time, BooleanSupplier running) throws Exception {
+        float[] block = decoded.claim();
+        if (block == null) return;
+        int pos = 0;
+        long t0 = System.nanoTime();
+
+        // Loop de decodificação frame-a-frame
+        while (running.getAsBoolean()) {
+
+            Header frameHeader = bitstream.readFrame();
+            if (frameHeader == null) {
+                break; // fim do MP3
+            }
+
+            SampleBuffer output = (SampleBuffer) decoder.decodeFrame(frameHeader, bitstream);
+            short[] pcmSamples = output.getBuffer();
+            int samplesDecoded = output.getBufferLength(); // L,R,L,R,...
+
+            // Copia samples decodificados para o bloco float
+            for (int i = 0; i < samplesDecoded; i++) {
+                if (pos >= block.length) {
+                    // bloco cheio → segue para o DSP
+                    decoded.publish(pos);
+                    time.record(System.nanoTime() - t0);
+
+                    block = decoded.claim();
+                    if (block == null) return; // DSP parou
+                    pos = 0;
+                    t0 = System.nanoTime();
+                }
+                block[pos++] = pcmSamples[i] / 32768f;
+            }
+
+            bitstream.closeFrame();
+        }
+
+        // bloco parcial (último)
+        if (pos > 0) {
+            decoded.publish(pos);
+            time.record(System.nanoTime() - t0);
+        }
+    }
+
+    /**
+     * Estágio 2: equalização in-place e cópia do bloco para cada consumidor.
+     * Placa de som e WAV sem perda (contrapressão); análise com descarte.
+     */
+    private void runDsp(BlockRing in, BlockRing playback, BlockRing toWav,
+                        BlockRing analysis, LatencyHistogram time) {
+        try {
+            float[] block;
+            while ((block = in.take()) != null) {
+                int length = in.length();
+
+                long t0 = System.nanoTime();
+                eqEngine.processInPlace(block, length);
+                time.record(System.nanoTime() - t0);
+
+                forward(playback, block, length, true);
+                forward(toWav, block, length, true);
+                forward(analysis, block, length, false);
+                in.release();
+            }
+        } finally {
+            in.close();
+            for (BlockRing ring : new BlockRing[] { playback, toWav, analysis }) {
+                if (ring != null) ring.close();
+            }
+        }
+    }
+
+    private static void forward(BlockRing ring, float[] block, int length, boolean lossless) {
+        if (ring == null) return;
+        float[] slot = lossless ? ring.claim() : ring.tryClaim();
+        if (slot == null) return; // fila cheia (análise) ou consumidor parado
+        System.arraycopy(block, 0, slot, 0, length);
+        ring.publish(length);
+    }
+
+    /** Estágio 3a: PCM16 para a placa de som (a escrita bloqueante dita o ritmo). */
+    private void runPlayback(BlockRing in, SourceDataLine line, LatencyHistogram time) {
+        byte[] byteBlock = new byte[blockSizeFrames * CHANNELS * 2]; // 16 bits = 2 bytes
+        boolean lineStarted = false;
+        try {
+            float[] block;
+            while ((block = in.take()) != null) {
+                long t0 = System.nanoTime();
+                int bytesValid = floatToPcm16(block, in.length(), byteBlock);
+                in.release();
+
+                // buffer da placa vazio antes de escrever: a saída ficou sem dados
+                if (lineStarted && line.available() >= line.getBufferSize()) {
+                    underruns++;
+                }
+                line.write(byteBlock, 0, bytesValid);
+                lineStarted = true;
+                time.record(System.nanoTime() - t0);
+            }
+        } catch (Exception ex) {
+            System.err.println("Falha ao escrever na placa de som: " + ex.getMessage());
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Estágio 3b: PCM16 no arquivo WAV, convertido direto do bloco float. */
+    private static void runWavWriter(BlockRing in, WavFileSink wavOut, LatencyHistogram time) {
+        try {
+            float[] block;
+            while ((block = in.take()) != null) {
+                long t0 = System.nanoTime();
+                wavOut.write(block, in.length());
+                in.release();
+                time.record(System.nanoTime() - t0);
+            }
+        } catch (IOException e) {
+            System.err.println("Falha ao escrever no arquivo WAV: " + e.getMessage());
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Estágio 3c: callback do usuário (visualização, espectro, etc.). */
+    private static void runAnalysis(BlockRing in, Consumer<float[]> onBlock, LatencyHistogram time) {
+        try {
+            float[] block;
+            while ((block = in.take()) != null) {
+                long t0 = System.nanoTime();
+                onBlock.accept(block);
+                in.release();
+                time.record(System.nanoTime() - t0);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static Thread stage(String name, Runnable body) {
+        Thread t = new Thread(body, name);
+        t.start();
+        return t;
+    }
+
     /**
      * Tenta abrir uma SourceDataLine usando o classloader do sistema
      * (workaround para Quarkus/DevMode isolando providers de áudio).
@@ -187,47 +407,6 @@ public class Mp3RealTimeDecoder {
         }
     }
 
-    /**
-     * Processa um bloco: EQ in-place, converte para PCM16, toca e grava no WAV.
-     */
-    private long processAndOutputBlock(
-            float[] floatBlock,
-            int length,
-            byte[] byteBlock,
-            SourceDataLine line,
-            RandomAccessFile wavOut,
-            Consumer<float[]> onBlock
-    ) {
-        // 1) Equalização in-place (por enquanto bypass)
-        eqEngine.processInPlace(floatBlock, length);
-
-        // 2) Callback do usuário (visualização, debug, espectro, etc.)
-        if (onBlock != null) {
-            onBlock.accept(floatBlock);
-        }
-
-        // 3) Converter para PCM16 LE
-        int bytesValid = floatToPcm16(floatBlock, length, byteBlock);
-
-        // 4) Tocar áudio processado
-        if (line != null && outputAudio) {
-            try {
-                line.write(byteBlock, 0, bytesValid);
-            } catch (Exception ex) {
-                System.err.println("Falha ao escrever na placa de som: " + ex.getMessage());
-            }
-        }
-
-        // 5) Gravar áudio processado em arquivo WAV
-        try {
-            wavOut.write(byteBlock, 0, bytesValid);
-        } catch (IOException e) {
-            System.err.println("Falha ao escrever no arquivo WAV: " + e.getMessage());
-        }
-
-        return bytesValid;
-    }
-
     /** Para parar o streaming (em uso futuro com controle externo) */
     public void stop() {
         playing = false;
@@ -236,7 +415,7 @@ public class Mp3RealTimeDecoder {
     // ===========================
     // Conversão float → PCM16 LE
     // ===========================
-    private int floatToPcm16(float[] samples, int length, byte[] out) {
+    static int floatToPcm16(float[] samples, int length, byte[] out) {
         int byteIndex = 0;
         for (int i = 0; i < length; i++) {
             float v = samples[i];
@@ -251,48 +430,6 @@ public class Mp3RealTimeDecoder {
         return byteIndex;
     }
 
-    // ===========================
-    // WAV header helpers
-    // ===========================
-    private void writeWavHeaderPlaceholder(RandomAccessFile raf, float sampleRate,
-                                           int channels, int bitsPerSample) throws IOException {
-        raf.seek(0);
-        // RIFF chunk descriptor
-        raf.writeBytes("RIFF");
-        raf.writeInt(0); // placeholder para chunk size
-        raf.writeBytes("WAVE");
-
-        // fmt subchunk
-        raf.writeBytes("fmt ");
-        raf.writeInt(Integer.reverseBytes(16)); // Subchunk1Size = 16 para PCM
-        raf.writeShort(Short.reverseBytes((short) 1)); // AudioFormat = 1 (PCM)
-        raf.writeShort(Short.reverseBytes((short) channels)); // NumChannels
-        raf.writeInt(Integer.reverseBytes((int) sampleRate)); // SampleRate
-        int byteRate = (int) sampleRate * channels * bitsPerSample / 8;
-        raf.writeInt(Integer.reverseBytes(byteRate)); // ByteRate
-        short blockAlign = (short) (channels * bitsPerSample / 8);
-        raf.writeShort(Short.reverseBytes(blockAlign)); // BlockAlign
-        raf.writeShort(Short.reverseBytes((short) bitsPerSample)); // BitsPerSample
-
-        // data subchunk
-        raf.writeBytes("data");
-        raf.writeInt(0); // placeholder para Subchunk2Size
-    }
-
-    private void finalizeWavHeader(RandomAccessFile raf, long dataSize, float sampleRate,
-                                   int channels, int bitsPerSample) throws IOException {
-        // ChunkSize = 4 + (8 + Subchunk1Size) + (8 + Subchunk2Size)
-        long chunkSize = 36 + dataSize;
-
-        // Atualiza ChunkSize
-        raf.seek(4);
-        raf.writeInt(Integer.reverseBytes((int) chunkSize));
-
-        // Atualiza Subchunk2Size (data size)
-        raf.seek(40);
-        raf.writeInt(Integer.reverseBytes((int) dataSize));
-    }
-
     public EqualizerEngine getEqEngine() {
         return this.eqEngine;
     }      
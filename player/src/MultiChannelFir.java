@@ -0,0 +1,121 @@
+/**
+ * FIR multicanal para áudio intercalado (L,R,L,R,...).
+ *
+ * Cada canal tem seu próprio {@link FirBandPass}, com linha de atraso
+ * independente, de modo que um canal nunca "vaza" no outro e as bordas
+ * de banda valem para a taxa real de cada canal (e não 2×fs, como quando
+ * o stream intercalado passa por um único filtro mono).
+ *
+ * O processamento é feito em buffers planares (um float[] contíguo por
+ * canal), então o laço interno de cada canal percorre memória contígua.
+ */
+public class MultiChannelFir {
+
+    private final int channels;
+    private final FirBandPass[] lanes;
+
+    // buffers planares usados por processInterleaved
+    private float[][] planes;
+
+    public MultiChannelFir(int channels, double fs, double fLow, double fHigh, int K) {
+        this.channels = channels;
+        this.lanes = new FirBandPass[channels];
+        for (int c = 0; c < channels; c++) {
+            lanes[c] = new FirBandPass(fs, fLow, fHigh, K);
+        }
+        this.planes = new float[channels][0];
+    }
+
+    public MultiChannelFir(int channels, double[] coefficients) {
+        this.channels = channels;
+        this.lanes = new FirBandPass[channels];
+        for (int c = 0; c < channels; c++) {
+            lanes[c] = new FirBandPass(coefficients);
+        }
+        this.planes = new float[channels][0];
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getNumTaps() {
+        return lanes[0].getNumTaps();
+    }
+
+    /** Cópia dos coeficientes (iguais em todos os canais). */
+    public double[] getCoefficients() {
+        return lanes[0].getCoefficients();
+    }
+
+    /** Troca os coeficientes de todos os canais, preservando o estado. */
+    public void setCoefficients(double[] coefficients) {
+        for (FirBandPass lane : lanes) {
+            lane.setCoefficients(coefficients);
+        }
+    }
+
+    public boolean isFftMode() {
+        return lanes[0].isFftMode();
+    }
+
+    /**
+     * Filtra IN-PLACE buffers planares: planes[c][0..frames-1] é o canal c.
+     */
+    public void processPlanar(float[][] planes, int frames) {
+        for (int c = 0; c < channels; c++) {
+            lanes[c].processBlock(planes[c], frames);
+        }
+    }
+
+    /** Só alimenta o histórico de cada canal (saída não calculada). */
+    public void feedPlanar(float[][] planes, int frames) {
+        for (int c = 0; c < channels; c++) {
+            lanes[c].feedHistory(planes[c], frames);
+        }
+    }
+
+    /** Copia o estado de cada canal de outro filtro equivalente. */
+    public void copyStateFrom(MultiChannelFir other) {
+        for (int c = 0; c < channels; c++) {
+            lanes[c].copyStateFrom(other.lanes[c]);
+        }
+    }
+
+    /**
+     * Filtra IN-PLACE um bloco intercalado. length é o total de samples;
+     * só frames completos (length / channels) são processados.
+     */
+    public void processInterleaved(float[] samples, int length) {
+        int frames = length / channels;
+        if (frames <= 0) return;
+
+        if (planes[0].length < frames) {
+            planes = new float[channels][frames];
+        }
+
+        deinterleave(samples, planes, channels, frames);
+        processPlanar(planes, frames);
+        interleave(planes, samples, channels, frames);
+    }
+
+    /** src intercalado → dst[c][frame]. */
+    public static void deinterleave(float[] src, float[][] dst, int channels, int frames) {
+        for (int c = 0; c < channels; c++) {
+            float[] plane = dst[c];
+            for (int i = 0, j = c; i < frames; i++, j += channels) {
+                plane[i] = src[j];
+            }
+        }
+    }
+
+    /** src[c][frame] → dst intercalado. */
+    public static void interleave(float[][] src, float[] dst, int channels, int frames) {
+        for (int c = 0; c < channels; c++) {
+            float[] plane = src[c];
+            for (int i = 0, j = c; i < frames; i++, j += channels) {
+                dst[j] = plane[i];
+            }
+        }
+    }
+}
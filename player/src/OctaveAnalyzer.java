@@ -0,0 +1,496 @@
+import java.util.function.Consumer;
+
+/**
+ * Analisador em frações de oitava (1/1, 1/3, 1/6) com medidores de pico,
+ * RMS e loudness momentânea (estilo LUFS).
+ *
+ * Multirresolução por decimação: o sinal mono passa por uma cadeia de
+ * filtros meia-banda com decimação por 2 (nível d amostrado a fs/2^d) e
+ * cada nível usado tem uma FFT de {@value #FFT_SIZE} pontos. Cada banda é
+ * lida no nível mais raso em que ela cobre pelo menos
+ * {@value #MIN_BINS_PER_BAND} bins e fica abaixo da faixa com aliasing,
+ * então as bandas graves têm resolução de frequência proporcional à
+ * largura (Q aproximadamente constante) sem FFTs gigantes. A decimação
+ * é feita em pedaços com um filtro meia-banda simétrico (só ~1/4 dos taps
+ * multiplicam): ~{@value #HALFBAND_TAPS}/4 MACs por amostra de entrada,
+ * somando todos os níveis.
+ *
+ * Cada banda tem um kernel esparso pré-calculado (bins do seu nível com
+ * peso fracionário nas bordas), então o custo por publicação cresce com
+ * o número de bins cobertos e não com bandas × bins: 31 ou 61 bandas
+ * custam quase o mesmo que 11.
+ *
+ * Bandas em dBFS absolutos (potência na banda, seno de amplitude 1 =
+ * -3 dB). Pico e RMS são dos dois canais no intervalo desde a última
+ * publicação; a loudness momentânea segue a ITU-R BS.1770 (ponderação K,
+ * janela de 400 ms em passos de 100 ms, sem gating).
+ *
+ * Tudo roda no thread que chama {@link #analyze}: por bloco só a mistura,
+ * a decimação e os medidores; as FFTs só na taxa de atualização. Nada é
+ * alocado por bloco e o {@link Reading} entregue ao listener é reutilizado.
+ *
+ * Por enquanto é só biblioteca: o player continua mostrando o
+ * {@link SpectrumAnalyzer}; este é usado pelo OctaveAnalyzerBenchmark.
+ */
+public class OctaveAnalyzer {
+
+    public static final int FFT_SIZE = 2048;
+    public static final double DEFAULT_UPDATE_HZ = 10.0;
+
+    private static final double REFERENCE_HZ = 1000.0;   // centros = 1 kHz · 2^(i/fração)
+    private static final double MIN_HZ = 20.0;
+    private static final double MAX_HZ = 20000.0;
+    private static final int MIN_BINS_PER_BAND = 3;
+    private static final int MAX_LEVEL = 8;              // fs/256
+    private static final double USABLE_FRACTION = 0.35;  // do fs do nível (passa-faixa plana, sem alias)
+    private static final int HALFBAND_TAPS = 63;         // 4k-1: taps pares ≠ 0, ímpares = 0
+
+    private static final int CHUNK_FRAMES = 1024;         // frames por passada na cadeia
+    private static final int LOUDNESS_STEPS = 4;         // 4 × 100 ms = 400 ms
+
+    /** Uma publicação. Reutilizada: copie o que quiser guardar. */
+    public static final class Reading {
+        public final double[] centerHz;
+        public final double[] bandDb;
+        public double peakDb;
+        public double rmsDb;
+        public double momentaryLufs;
+
+        Reading(double[] centerHz) {
+            this.centerHz = centerHz;
+            this.bandDb = new double[centerHz.length];
+        }
+    }
+
+    private final float sampleRate;
+    private final int fraction;
+    private final Consumer<Reading> listener;
+    private final Reading reading;
+
+    // cadeia de decimação: ring[d] guarda as últimas FFT_SIZE amostras do nível d
+    private final int levels;
+    private final float[][] ring;
+    private final long[] count;
+    private final double[] halfband;
+    private final float[][] levelIn;   // pedaço de entrada de cada nível
+    private final float[][] line;      // [HALFBAND_TAPS-1 de histórico | pedaço]
+    private final float[] phase;       // amostras de line com a paridade da 1ª saída
+
+    // FFT e kernels esparsos das bandas
+    private final RealFft fft;
+    private final double[] window;
+    private final double powerScale;
+    private final boolean[] levelUsed;
+    private final int[] bandLevel;
+    private final int[] kernelStart;   // índices em kernelBin/kernelWeight
+    private final int[] kernelBin;
+    private final double[] kernelWeight;
+    private final double[] frame;
+    private final double[] re;
+    private final double[] im;
+    private final double[][] power;    // por nível usado
+
+    // medidores
+    private final double[] kShelf;     // b0 b1 b2 a1 a2
+    private final double[] kHighPass;
+    private final double[][] kState;   // por canal: 2 estados por biquad
+    private final int loudnessStepFrames;
+    private final double[] loudnessSteps;
+    private int loudnessStepIndex = 0;
+    private int loudnessStepsFilled = 0;
+    private double stepSum = 0.0;
+    private int stepFrames = 0;
+    private double intervalPeak = 0.0;
+    private double intervalSquares = 0.0;
+    private long intervalSamples = 0;
+
+    private volatile int samplesPerUpdate;
+    private int sinceUpdate = 0;
+
+    /**
+     * @param fraction bandas por oitava: 1, 3 ou 6
+     */
+    public OctaveAnalyzer(float sampleRate, int fraction, Consumer<Reading> listener) {
+        if (fraction != 1 && fraction != 3 && fraction != 6) {
+            throw new IllegalArgumentException("Fração de oitava deve ser 1, 3 ou 6: " + fraction);
+        }
+        this.sampleRate = sampleRate;
+        this.fraction = fraction;
+        this.listener = listener;
+
+        // --- bandas: centro fc, bordas fc · 2^(±1/2f), limitadas a Nyquist
+        double edge = Math.pow(2.0, 1.0 / (2.0 * fraction));
+        int first = (int) Math.ceil(fraction * log2(MIN_HZ / edge / REFERENCE_HZ));
+        int last = (int) Math.floor(fraction * log2(MAX_HZ * edge / REFERENCE_HZ));
+        while (last >= first && REFERENCE_HZ * Math.pow(2.0, last / (double) fraction) / edge >= sampleRate / 2.0) {
+            last--;
+        }
+        int numBands = Math.max(0, last - first + 1);
+        double[] centers = new double[numBands];
+        double[] lowHz = new double[numBands];
+        double[] highHz = new double[numBands];
+        for (int b = 0; b < numBands; b++) {
+            centers[b] = REFERENCE_HZ * Math.pow(2.0, (first + b) / (double) fraction);
+            lowHz[b] = centers[b] / edge;
+            highHz[b] = Math.min(centers[b] * edge, sampleRate / 2.0);
+        }
+        this.reading = new Reading(centers);
+
+        // --- nível de cada banda: o mais raso com bins suficientes
+        this.bandLevel = new int[numBands];
+        int deepest = 0;
+        for (int b = 0; b < numBands; b++) {
+            int level = 0;
+            for (int d = 0; d <= MAX_LEVEL; d++) {
+                double fsd = sampleRate / (double) (1 << d);
+                if (highHz[b] > USABLE_FRACTION * fsd && d > 0) {
+                    break;   // acima da faixa útil deste nível: fica no anterior
+                }
+                level = d;
+                if ((highHz[b] - lowHz[b]) / (fsd / FFT_SIZE) >= MIN_BINS_PER_BAND) {
+                    break;
+                }
+            }
+            bandLevel[b] = level;
+            deepest = Math.max(deepest, level);
+        }
+        this.levels = deepest + 1;
+        this.levelUsed = new boolean[levels];
+        for (int level : bandLevel) {
+            levelUsed[level] = true;
+        }
+
+        // --- kernels esparsos: peso = fração do bin [k-½, k+½] dentro da banda
+        this.kernelStart = new int[numBands + 1];
+        int total = 0;
+        for (int b = 0; b < numBands; b++) {
+            double binHz = sampleRate / (double) (1 << bandLevel[b]) / FFT_SIZE;
+            total += (int) (Math.floor(highHz[b] / binHz + 0.5) - Math.ceil(lowHz[b] / binHz - 0.5)) + 1;
+        }
+        this.kernelBin = new int[total];
+        this.kernelWeight = new double[total];
+        int pos = 0;
+        for (int b = 0; b < numBands; b++) {
+            kernelStart[b] = pos;
+            double binHz = sampleRate / (double) (1 << bandLevel[b]) / FFT_SIZE;
+            int kMin = Math.max(1, (int) Math.ceil(lowHz[b] / binHz - 0.5));
+            int kMax = Math.min(FFT_SIZE / 2, (int) Math.floor(highHz[b] / binHz + 0.5));
+            for (int k = kMin; k <= kMax && pos < total; k++) {
+                double lo = Math.max(lowHz[b], (k - 0.5) * binHz);
+                double hi = Math.min(highHz[b], (k + 0.5) * binHz);
+                if (hi > lo) {
+                    kernelBin[pos] = k;
+                    kernelWeight[pos] = (hi - lo) / binHz;
+                    pos++;
+                }
+            }
+        }
+        kernelStart[numBands] = pos;
+
+        // --- decimação
+        this.ring = new float[levels][FFT_SIZE];
+        this.count = new long[levels];
+        this.halfband = designHalfband();
+        this.levelIn = new float[levels][CHUNK_FRAMES];
+        this.line = new float[levels][HALFBAND_TAPS - 1 + CHUNK_FRAMES];
+        this.phase = new float[(HALFBAND_TAPS + CHUNK_FRAMES) / 2];
+
+        // --- FFT: potência na banda = 2·Σ|X|² / (N·Σw²)
+        this.fft = new RealFft(FFT_SIZE);
+        this.window = new double[FFT_SIZE];
+        double sumW2 = 0.0;
+        for (int n = 0; n < FFT_SIZE; n++) {
+            window[n] = 0.5 * (1.0 - Math.cos(2.0 * Math.PI * n / FFT_SIZE));
+            sumW2 += window[n] * window[n];
+        }
+        this.powerScale = 2.0 / (FFT_SIZE * sumW2);
+        this.frame = new double[FFT_SIZE];
+        this.re = new double[fft.bins()];
+        this.im = new double[fft.bins()];
+        this.power = new double[levels][fft.bins()];
+
+        // --- ponderação K (BS.1770) recalculada para o fs
+        this.kShelf = kWeightingShelf(sampleRate);
+        this.kHighPass = kWeightingHighPass(sampleRate);
+        this.kState = new double[2][4];
+        this.loudnessStepFrames = Math.max(1, Math.round(sampleRate / 10f));
+        this.loudnessSteps = new double[LOUDNESS_STEPS];
+
+        setUpdateRateHz(DEFAULT_UPDATE_HZ);
+    }
+
+    /** Publicações por segundo de áudio (padrão {@value #DEFAULT_UPDATE_HZ}). */
+    public void setUpdateRateHz(double hz) {
+        this.samplesPerUpdate = (int) Math.max(1, Math.round(sampleRate / Math.max(0.1, hz)));
+    }
+
+    public int getFraction() {
+        return fraction;
+    }
+
+    public int getNumBands() {
+        return reading.centerHz.length;
+    }
+
+    /** Frequências centrais das bandas (não alterar). */
+    public double[] getCenterFrequencies() {
+        return reading.centerHz;
+    }
+
+    /** Analisa o bloco inteiro (ver {@link #analyze(float[], int)}). */
+    public void analyze(float[] interleaved) {
+        analyze(interleaved, interleaved.length);
+    }
+
+    /**
+     * Acrescenta length amostras intercaladas estéreo (L,R,L,R,...) e, a
+     * cada intervalo de atualização, publica um {@link Reading}.
+     */
+    public void analyze(float[] interleaved, int length) {
+        int numFrames = length / 2;
+        int pos = 0;
+        while (pos < numFrames) {
+            // pedaços que terminam no máximo na próxima publicação; com a
+            // taxa aumentada no meio do intervalo, sinceUpdate pode já ter
+            // passado do novo limite: publica depois de 1 frame
+            int perUpdate = samplesPerUpdate;
+            int n = Math.min(Math.min(numFrames - pos, CHUNK_FRAMES), Math.max(1, perUpdate - sinceUpdate));
+            float[] mono = levelIn[0];
+            for (int i = 0; i < n; i++) {
+                mono[i] = 0.5f * (interleaved[2 * (pos + i)] + interleaved[2 * (pos + i) + 1]);
+            }
+            meter(interleaved, pos, n);
+            feed(0, n);
+            pos += n;
+
+            sinceUpdate += n;
+            if (sinceUpdate >= perUpdate) {
+                sinceUpdate = 0;
+                publish();
+            }
+        }
+    }
+
+    /**
+     * Guarda levelIn[d][0 .. n) no histórico do nível d e decima para o
+     * d+1 (uma saída a cada duas entradas, filtro simétrico).
+     */
+    private void feed(int d, int n) {
+        float[] in = levelIn[d];
+        long c = count[d];
+
+        if (d + 1 < levels) {
+            float[] x = line[d];
+            int hist = HALFBAND_TAPS - 1;
+            int mid = HALFBAND_TAPS / 2;
+            double[] h = halfband;
+            System.arraycopy(in, 0, x, hist, n);
+
+            // saídas nas entradas de índice global ímpar: x[e], e = base + 2j.
+            // Meia-banda: fora o central, só os taps pares são não nulos, e
+            // x[e - k] com k par tem a paridade de base. Copiando essa fase
+            // para um array contíguo, o laço interno anda de 1 em 1.
+            int i0 = (int) ((c + 1) & 1);
+            int m = (i0 < n) ? (n - i0 + 1) / 2 : 0;
+            int base = hist + i0;
+            int total = hist + n;
+            for (int t = 0, q = base & 1; q < total; t++, q += 2) {
+                phase[t] = x[q];
+            }
+
+            float[] out = levelIn[d + 1];
+            float hm = (float) h[mid];
+            for (int j = 0, e = base - mid; j < m; j++, e += 2) {
+                out[j] = hm * x[e];
+            }
+            for (int k = 0; k < mid; k += 2) {
+                float hk = (float) h[k];
+                int newer = (base - k) >> 1;          // x[e - k]
+                int older = (base - hist + k) >> 1;   // x[e - hist + k]
+                for (int j = 0; j < m; j++) {
+                    out[j] += hk * (phase[newer + j] + phase[older + j]);
+                }
+            }
+            System.arraycopy(x, n, x, 0, hist);
+            feed(d + 1, m);
+        }
+
+        // histórico circular do nível (para a FFT)
+        float[] r = ring[d];
+        int start = (int) (c & (FFT_SIZE - 1));
+        int first = Math.min(n, FFT_SIZE - start);
+        System.arraycopy(in, 0, r, start, first);
+        System.arraycopy(in, first, r, 0, n - first);
+        count[d] = c + n;
+    }
+
+    /** Pico, RMS e loudness de frames [pos, pos+n) (estado em locais no laço). */
+    private void meter(float[] interleaved, int pos, int n) {
+        double peak = intervalPeak;
+        double squares = intervalSquares;
+        double sum = stepSum;
+        int frames = stepFrames;
+        double[] sl = kState[0];
+        double[] sr = kState[1];
+
+        for (int i = pos; i < pos + n; i++) {
+            float left = interleaved[2 * i];
+            float right = interleaved[2 * i + 1];
+            peak = Math.max(peak, Math.max(Math.abs(left), Math.abs(right)));
+            squares += left * (double) left + right * (double) right;
+
+            double yl = kWeight(left, sl);
+            double yr = kWeight(right, sr);
+            sum += yl * yl + yr * yr;
+            if (++frames == loudnessStepFrames) {
+                loudnessSteps[loudnessStepIndex] = sum / frames;
+                loudnessStepIndex = (loudnessStepIndex + 1) % LOUDNESS_STEPS;
+                if (loudnessStepsFilled < LOUDNESS_STEPS) loudnessStepsFilled++;
+                sum = 0.0;
+                frames = 0;
+            }
+        }
+
+        intervalPeak = peak;
+        intervalSquares = squares;
+        intervalSamples += 2L * n;
+        stepSum = sum;
+        stepFrames = frames;
+    }
+
+    /** Shelf e passa-altas da ponderação K em cascata (forma direta II transposta). */
+    private double kWeight(double x, double[] s) {
+        double[] a = kShelf;
+        double y = a[0] * x + s[0];
+        s[0] = a[1] * x - a[3] * y + s[1];
+        s[1] = a[2] * x - a[4] * y;
+
+        double[] h = kHighPass;
+        double z = h[0] * y + s[2];
+        s[2] = h[1] * y - h[3] * z + s[3];
+        s[3] = h[2] * y - h[4] * z;
+        return z;
+    }
+
+    private void publish() {
+        // espectro de potência de cada nível usado (último quadro de FFT_SIZE)
+        for (int d = 0; d < levels; d++) {
+            if (!levelUsed[d]) continue;
+            float[] r = ring[d];
+            int start = (int) (count[d] & (FFT_SIZE - 1));   // amostra mais antiga
+            for (int n = 0; n < FFT_SIZE; n++) {
+                frame[n] = r[(start + n) & (FFT_SIZE - 1)] * window[n];
+            }
+            fft.forward(frame, re, im);
+            double[] p = power[d];
+            for (int k = 0; k < p.length; k++) {
+                p[k] = re[k] * re[k] + im[k] * im[k];
+            }
+        }
+
+        double[] bandDb = reading.bandDb;
+        for (int b = 0; b < bandDb.length; b++) {
+            double[] p = power[bandLevel[b]];
+            double sum = 0.0;
+            for (int i = kernelStart[b]; i < kernelStart[b + 1]; i++) {
+                sum += kernelWeight[i] * p[kernelBin[i]];
+            }
+            bandDb[b] = toDb(sum * powerScale);
+        }
+
+        reading.peakDb = 20.0 * Math.log10(Math.max(intervalPeak, 1e-10));
+        reading.rmsDb = toDb(intervalSamples > 0 ? intervalSquares / intervalSamples : 0.0);
+        double meanSquare = 0.0;
+        for (int i = 0; i < loudnessStepsFilled; i++) {
+            meanSquare += loudnessSteps[i];
+        }
+        meanSquare = loudnessStepsFilled > 0 ? meanSquare / loudnessStepsFilled : 0.0;
+        reading.momentaryLufs = -0.691 + toDb(meanSquare);
+
+        intervalPeak = 0.0;
+        intervalSquares = 0.0;
+        intervalSamples = 0;
+
+        if (listener != null) {
+            listener.accept(reading);
+        }
+    }
+
+    private static double toDb(double power) {
+        return 10.0 * Math.log10(Math.max(power, 1e-12));   // piso em -120 dB
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2.0);
+    }
+
+    /**
+     * Meia-banda para decimar por 2: windowed-sinc com corte em fs/4 e janela
+     * de Blackman. Plano até ~0.41 do fs de saída e com o alias dobrando
+     * acima disso, por isso as bandas usam só até {@value #USABLE_FRACTION}.
+     */
+    private static double[] designHalfband() {
+        double[] h = new double[HALFBAND_TAPS];
+        int mid = HALFBAND_TAPS / 2;
+        double sum = 0.0;
+        for (int n = 0; n < HALFBAND_TAPS; n++) {
+            int m = n - mid;
+            double sinc = (m == 0) ? 0.5 : Math.sin(0.5 * Math.PI * m) / (Math.PI * m);
+            double w = 0.42 - 0.5 * Math.cos(2.0 * Math.PI * n / (HALFBAND_TAPS - 1))
+                    + 0.08 * Math.cos(4.0 * Math.PI * n / (HALFBAND_TAPS - 1));
+            h[n] = ((m & 1) == 0 && m != 0) ? 0.0 : sinc * w;   // zeros exatos
+            sum += h[n];
+        }
+        for (int n = 0; n < HALFBAND_TAPS; n++) {
+            h[n] /= sum;   // ganho DC = 1
+        }
+        return h;
+    }
+
+    // Coeficientes da ponderação K para qualquer fs (mesma derivação do
+    // libebur128): {b0, b1, b2, a1, a2}, a0 = 1.
+    private static double[] kWeightingShelf(double fs) {
+        double f0 = 1681.974450955533;
+        double gainDb = 3.999843853973347;
+        double q = 0.7071752369554196;
+        double k = Math.tan(Math.PI * f0 / fs);
+        double vh = Math.pow(10.0, gainDb / 20.0);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1.0 + k / q + k * k;
+        return new double[] {
+                (vh + vb * k / q + k * k) / a0,
+                2.0 * (k * k - vh) / a0,
+                (vh - vb * k / q + k * k) / a0,
+                2.0 * (k * k - 1.0) / a0,
+                (1.0 - k / q + k * k) / a0
+        };
+    }
+
+    private static double[] kWeightingHighPass(double fs) {
+        double f0 = 38.13547087602444;
+        double q = 0.5003270373238773;
+        double k = Math.tan(Math.PI * f0 / fs);
+        double a0 = 1.0 + k / q + k * k;
+        return new double[] {
+                1.0, -2.0, 1.0,
+                2.0 * (k * k - 1.0) / a0,
+                (1.0 - k / q + k * k) / a0
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "OctaveAnalyzer[1/" + fraction + " oitava, " + getNumBands() + " bandas, "
+                + levels + " níveis]";
+    }
+
+    /** Resumo legível de uma publicação (para log). */
+    public static String format(Reading r) {
+        StringBuilder sb = new StringBuilder(String.format(
+                "pico %.1f dBFS, RMS %.1f dBFS, %.1f LUFS (M) |", r.peakDb, r.rmsDb, r.momentaryLufs));
+        for (int b = 0; b < r.bandDb.length; b++) {
+            sb.append(String.format(" %.0f:%.0f", r.centerHz[b], r.bandDb[b]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,219 @@
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Renderização offline (mais rápida que tempo real): MP3 → equalizador → WAV.
+ *
+ * Diferente do Mp3RealTimeDecoder, não abre placa de som, não tem
+ * callback de análise nem imprime nada: um thread decodifica e outro
+ * equaliza em blocos grandes e grava direto no {@link WavFileSink}, então
+ * a vazão fica limitada pelo mais lento dos dois (em geral o decoder).
+ *
+ * Com {@link #setParallelism(int)} > 1 a equalização de cada janela de
+ * áudio decodificado é dividida em segmentos processados em paralelo
+ * ({@link ParallelEqualizer}), com resultado idêntico ao serial.
+ *
+ * Uso:
+ *   OfflineRenderer.Result r = new OfflineRenderer()
+ *           .setGainsDb(new double[] { 6, 0, -3, 0, 2 })
+ *           .render("entrada.mp3", "saida.wav");
+ *   System.out.println(r);   // ... 350.0x tempo real
+ */
+public class OfflineRenderer {
+
+    public static final int DEFAULT_BLOCK_FRAMES = 16384;
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int RING_BLOCKS = 4;
+    private static final int INPUT_BUFFER_BYTES = 1 << 16;
+    private static final int SEGMENT_BLOCKS = 4;       // modo paralelo: blocos por segmento
+    private static final int SEGMENTS_PER_THREAD = 4;  // segmentos por thread em cada janela
+
+    private int blockFrames = DEFAULT_BLOCK_FRAMES;
+    private double[] gainsDb = new double[5];
+    private boolean combinedKernel = true;
+    private int parallelism = 1;
+    private Supplier<EqualizerEngine> engineFactory = EqualizerEngine::new;
+
+    /** Resultado de uma renderização. */
+    public static class Result {
+        public final long frames;
+        public final double wallSeconds;
+
+        Result(long frames, double wallSeconds) {
+            this.frames = frames;
+            this.wallSeconds = wallSeconds;
+        }
+
+        public double audioSeconds() {
+            return frames / (double) SAMPLE_RATE;
+        }
+
+        /** Segundos de áudio por segundo de relógio. */
+        public double realtimeFactor() {
+            return wallSeconds > 0 ? audioSeconds() / wallSeconds : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f s de áudio em %.2f s: %.1fx tempo real",
+                    audioSeconds(), wallSeconds, realtimeFactor());
+        }
+    }
+
+    /** Frames por bloco de DSP (padrão {@value #DEFAULT_BLOCK_FRAMES}). */
+    public OfflineRenderer setBlockFrames(int blockFrames) {
+        this.blockFrames = Math.max(1, blockFrames);
+        return this;
+    }
+
+    /** Ganhos das 5 bandas em dB (preset). */
+    public OfflineRenderer setGainsDb(double[] gainsDb) {
+        this.gainsDb = gainsDb.clone();
+        return this;
+    }
+
+    /** Kernel combinado (padrão) ou filtros por banda. */
+    public OfflineRenderer setCombinedKernel(boolean enabled) {
+        this.combinedKernel = enabled;
+        return this;
+    }
+
+    /** Threads de equalização (1 = serial, padrão). */
+    public OfflineRenderer setParallelism(int threads) {
+        this.parallelism = Math.max(1, threads);
+        return this;
+    }
+
+    /** Fábrica dos engines de equalização (testes); ganhos e modo são aplicados depois. */
+    OfflineRenderer setEngineFactory(Supplier<EqualizerEngine> engineFactory) {
+        this.engineFactory = engineFactory;
+        return this;
+    }
+
+    public Result render(String inputPath, String outputPath) throws Exception {
+        return render(inputPath, new WavFileSink(new File(outputPath), SAMPLE_RATE, CHANNELS));
+    }
+
+    /** Grava o WAV no stream (cabeçalho de tamanho indefinido); o stream não é fechado. */
+    public Result render(String inputPath, OutputStream out) throws Exception {
+        return render(inputPath, new WavFileSink(out, SAMPLE_RATE, CHANNELS));
+    }
+
+    private Result render(String inputPath, WavFileSink sink) throws Exception {
+        long t0 = System.nanoTime();
+
+        BlockRing decoded = new BlockRing("decodificado", RING_BLOCKS, blockFrames * CHANNELS);
+        Throwable[] failure = new Throwable[1];
+
+        // equalização + gravação, em paralelo com a decodificação; qualquer
+        // falha aqui (inclusive RuntimeException/Error do EQ) fecha o anel,
+        // para a decodificação e volta como exceção de render()
+        Thread dsp = new Thread(() -> {
+            try {
+                if (parallelism > 1) {
+                    equalizeParallel(decoded, sink);
+                } else {
+                    equalizeSerial(decoded, sink);
+                }
+            } catch (Throwable t) {
+                failure[0] = t;
+            } finally {
+                decoded.close();
+            }
+        }, "offline-dsp");
+
+        try (sink; InputStream in = new BufferedInputStream(
+                new FileInputStream(inputPath), INPUT_BUFFER_BYTES)) {
+
+            dsp.start();
+            Bitstream bitstream = new Bitstream(in);
+            try {
+                Mp3RealTimeDecoder.decodeLoop(bitstream, new Decoder(), decoded,
+                        new LatencyHistogram(), () -> true);
+            } finally {
+                decoded.close();
+                dsp.join();
+                bitstream.close();
+            }
+            if (failure[0] instanceof IOException e) {
+                throw e;
+            }
+            if (failure[0] != null) {
+                throw new IOException("Falha na equalização de " + inputPath, failure[0]);
+            }
+        }
+
+        return new Result(sink.getFramesWritten(), (System.nanoTime() - t0) / 1e9);
+    }
+
+    private EqualizerEngine newEngine() {
+        EqualizerEngine eq = engineFactory.get();
+        eq.setCombinedKernel(combinedKernel);
+        eq.setGainsDb(gainsDb);
+        return eq;
+    }
+
+    private void equalizeSerial(BlockRing decoded, WavFileSink sink) throws IOException {
+        EqualizerEngine eq = newEngine();
+        float[] block;
+        while ((block = decoded.take()) != null) {
+            int length = decoded.length();
+            eq.processInPlace(block, length);
+            sink.write(block, length);
+            decoded.release();
+        }
+    }
+
+    /**
+     * Junta blocos decodificados numa janela e equaliza a janela em
+     * paralelo. window = [N-1 frames de entrada anterior | áudio novo]: o
+     * prefixo é o histórico do primeiro segmento (zeros no início).
+     */
+    private void equalizeParallel(BlockRing decoded, WavFileSink sink) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            ParallelEqualizer eq = new ParallelEqualizer(this::newEngine, CHANNELS, blockFrames, pool);
+            eq.setSegmentBlocks(SEGMENT_BLOCKS);
+
+            int history = newEngine().getHistoryFrames() * CHANNELS;
+            int windowSamples = parallelism * SEGMENTS_PER_THREAD * SEGMENT_BLOCKS * blockFrames * CHANNELS;
+            float[] window = new float[history + windowSamples];
+            float[] tail = new float[history];
+            int fill = 0;
+
+            float[] block;
+            while ((block = decoded.take()) != null) {
+                int length = decoded.length();
+                System.arraycopy(block, 0, window, history + fill, length);
+                decoded.release();
+                fill += length;
+
+                if (fill == windowSamples) {
+                    // entrada crua do fim da janela = histórico da próxima
+                    System.arraycopy(window, windowSamples, tail, 0, history);
+                    eq.process(window, history, fill);
+                    sink.write(window, history, fill);
+                    System.arraycopy(tail, 0, window, 0, history);
+                    fill = 0;
+                }
+            }
+            if (fill > 0) {
+                eq.process(window, history, fill);
+                sink.write(window, history, fill);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
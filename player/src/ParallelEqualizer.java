@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Equaliza um sinal longo já decodificado usando vários cores.
+ *
+ * O sinal é dividido em segmentos de tempo, cada um processado num
+ * ForkJoinPool por um EqualizerEngine próprio. Antes do primeiro bloco,
+ * o engine do segmento recebe as N-1 amostras anteriores (por canal) só
+ * como histórico ({@link EqualizerEngine#primeHistory}), então as linhas
+ * de atraso dos FIRs começam exatamente como estariam no processamento
+ * serial.
+ *
+ * Resultado bit a bit igual ao serial em blocos de blockFrames, desde que
+ * os ganhos sejam fixos: os segmentos começam sempre numa fronteira de
+ * bloco do serial (mesmo enquadramento do FftConvolver e do limiter por
+ * bloco) e o primeiro bloco de cada engine já aplica os ganhos sem rampa.
+ */
+public final class ParallelEqualizer {
+
+    private final Supplier<EqualizerEngine> engines;
+    private final int channels;
+    private final int blockFrames;
+    private final ForkJoinPool pool;
+    private int segmentBlocks = 0; // 0 = automático
+
+    /**
+     * @param engines      cria um engine já configurado (ganhos, modo)
+     * @param channels     canais intercalados do sinal
+     * @param blockFrames  frames por bloco de processInPlace
+     */
+    public ParallelEqualizer(Supplier<EqualizerEngine> engines, int channels,
+                             int blockFrames, ForkJoinPool pool) {
+        this.engines = engines;
+        this.channels = channels;
+        this.blockFrames = blockFrames;
+        this.pool = pool;
+    }
+
+    /** Tamanho dos segmentos em blocos (0 = ~4 segmentos por thread do pool). */
+    public void setSegmentBlocks(int segmentBlocks) {
+        this.segmentBlocks = Math.max(0, segmentBlocks);
+    }
+
+    /** Equaliza IN-PLACE length samples intercalados. */
+    public void process(float[] samples, int length) {
+        process(samples, 0, length);
+    }
+
+    /**
+     * Equaliza IN-PLACE samples[offset .. offset+length). As amostras antes
+     * de offset (até N-1 frames) são a entrada original que precede o
+     * trecho e servem só de histórico — assim um sinal longo pode ser
+     * processado em janelas sucessivas com o mesmo resultado.
+     */
+    public void process(float[] samples, int offset, int length) {
+        int frames = length / channels;
+        int totalBlocks = (frames + blockFrames - 1) / blockFrames;
+        if (totalBlocks == 0) return;
+
+        int perSegment = segmentBlocks > 0
+                ? segmentBlocks
+                : Math.max(1, totalBlocks / (4 * pool.getParallelism()));
+        int segmentSamples = perSegment * blockFrames * channels;
+
+        EqualizerEngine first = engines.get();
+        int historySamples = first.getHistoryFrames() * channels;
+
+        // o processamento é in-place: guarda o histórico de cada segmento
+        // antes que o segmento anterior o sobrescreva
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        int limit = offset + length;
+        for (int start = offset; start < limit; start += segmentSamples) {
+            int end = Math.min(limit, start + segmentSamples);
+            int preStart = Math.max(0, start - historySamples);
+            float[] preRoll = new float[start - preStart];
+            System.arraycopy(samples, preStart, preRoll, 0, preRoll.length);
+
+            EqualizerEngine engine = (start == offset) ? first : engines.get();
+            int segStart = start;
+            tasks.add(ForkJoinTask.adapt(() ->
+                    processSegment(engine, preRoll, samples, segStart, end - segStart)));
+        }
+
+        pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+    }
+
+    /**
+     * Um segmento: histórico, depois blocos iguais aos do serial.
+     */
+    private void processSegment(EqualizerEngine engine, float[] preRoll,
+                                float[] samples, int offset, int length) {
+        if (preRoll.length > 0) {
+            engine.primeHistory(preRoll, preRoll.length);
+        }
+
+        int blockSamples = blockFrames * channels;
+        float[] block = new float[blockSamples];
+        for (int pos = 0; pos < length; pos += blockSamples) {
+            int n = Math.min(blockSamples, length - pos);
+            System.arraycopy(samples, offset + pos, block, 0, n);
+            engine.processInPlace(block, n);
+            System.arraycopy(block, 0, samples, offset + pos, n);
+        }
+    }
+}
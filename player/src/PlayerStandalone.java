@@ -1,10 +1,21 @@
+/**
+ * Player com equalizador, sem Maven. A partir da pasta player:
+ *
+ *   javac -encoding UTF-8 --add-modules jdk.incubator.vector -cp "lib/*" src/*.java
+ *   java --add-modules jdk.incubator.vector -cp "src:lib/*" PlayerStandalone musica.mp3
+ *
+ * O SimdFir (Vector API) só compila com o módulo jdk.incubator.vector; na
+ * execução ele é opcional (sem o módulo o FIR usa o laço escalar).
+ */
 public class PlayerStandalone {
 
     public static void main(String[] args) throws Exception {
 
         if (args.length == 0) {
             System.out.println("Uso:");
-            System.out.println("  java PlayerStandalone caminho_do_mp3");
+            System.out.println("  java --add-modules jdk.incubator.vector -cp \"src:lib/*\" PlayerStandalone caminho_do_mp3");
+            System.out.println("Compilar (pasta player):");
+            System.out.println("  javac -encoding UTF-8 --add-modules jdk.incubator.vector -cp \"lib/*\" src/*.java");
             return;
         }
 
@@ -19,6 +30,9 @@ public class PlayerStandalone {
         Mp3RealTimeDecoder decoder = new Mp3RealTimeDecoder(mp3);
         decoder.enableAudioOutput(true);  // ativa som na VM
 
+        // 5 bandas somadas num único FIR: uma convolução por bloco
+        decoder.getEqEngine().setCombinedKernel(true);
+
         // EqualizerEngine já está dentro do decoder.
         // Iniciamos o GainServer para receber ganhos do Quarkus.
         GainServer gainServer = new GainServer(5555, decoder.getEqEngine());
@@ -43,6 +57,7 @@ public class PlayerStandalone {
             analyzer.analyze(block);
         });
 
+        analyzer.close();
         System.out.println("Fim da execução.");
     }
 }
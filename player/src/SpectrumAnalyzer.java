@@ -1,6 +1,34 @@
+import java.util.Arrays;
 import java.util.function.Consumer;
 
-public class SpectrumAnalyzer {
+/**
+ * Espectro em 10 bandas logarítmicas (50 Hz – 20 kHz) para a visualização.
+ *
+ * {@link #analyze} roda a cada bloco no caminho do áudio e faz só o
+ * barato: mistura para mono num buffer circular. Na taxa de atualização
+ * ({@link #setUpdateRateHz}, padrão {@value #DEFAULT_UPDATE_HZ} Hz) o
+ * trecho mais recente é copiado e o espectro é calculado por Welch:
+ * média de |X|² de quadros de fftSize com janela de Hann e sobreposição
+ * ({@link #setOverlap}, padrão 50%) cobrindo o intervalo desde a última
+ * publicação (até {@value #MAX_WELCH_FRAMES} quadros). A média deixa as
+ * barras mais estáveis que um quadro isolado.
+ *
+ * Por padrão a FFT e a redução em bandas rodam num thread próprio de
+ * baixa prioridade ("eq-spectrum"): se ele atrasar, a cópia pendente é
+ * substituída pela mais nova (nunca bloqueia o áudio por mais que uma
+ * troca de buffers). {@link #setBackground(boolean) setBackground(false)}
+ * calcula no próprio thread que chamou analyze; se o worker ainda estiver
+ * calculando na hora da troca, essa publicação é pulada (os buffers do
+ * cálculo são de um thread por vez). Nada é alocado por bloco.
+ *
+ * O listener recebe sempre o mesmo array (reutilizado na próxima
+ * publicação): quem guardar os valores deve copiá-los.
+ */
+public class SpectrumAnalyzer implements AutoCloseable {
+
+    public static final double DEFAULT_UPDATE_HZ = 10.0;
+    public static final double DEFAULT_OVERLAP = 0.5;
+    private static final int MAX_WELCH_FRAMES = 16;
 
     private final int fftSize;        // Ex: 1024
     private final float sampleRate;   // 44100 Hz
@@ -9,12 +37,43 @@ public class SpectrumAnalyzer {
     // limites de banda em Hz (11 valores para 10 bandas)
     private final double[] bandEdgesHz;
 
-    // buffers da FFT
-    private final double[] re;
+    // bins [bandBinMin[b], bandBinMax[b]] de cada banda
+    private final int[] bandBinMin;
+    private final int[] bandBinMax;
+
+    private final RealFft fft;
+    private final double[] window;    // Hann de fftSize amostras
+
+    // histórico mono (potência de 2 >= maior trecho de Welch)
+    private final float[] ring;
+    private final int ringMask;
+    private long written = 0;
+
+    // configuração (lida no thread do áudio)
+    private volatile int samplesPerUpdate;
+    private volatile int hop;
+    private volatile boolean background = true;
+    private int sinceUpdate = 0;
+
+    // trecho copiado para o cálculo: pending (escrito pelo áudio) e work
+    // (lido pelo cálculo) trocam de papel sob o lock; computing marca que
+    // work e os buffers do cálculo estão em uso (worker ou inline)
+    private final Object lock = new Object();
+    private float[] pending;
+    private int pendingLength = 0;
+    private boolean hasPending = false;
+    private boolean computing = false;
+    private float[] work;
+    private Thread worker;
+    private volatile boolean closed = false;
+
+    // buffers do cálculo (reutilizados)
+    private final double[] frame;   // quadro janelado, fftSize amostras
+    private final double[] re;      // bins 0 .. fftSize/2
     private final double[] im;
-
-    // contador para reduzir taxa de atualização (ex.: ~10 Hz)
-    private int frameCounter = 0;
+    private final double[] power;   // média de |X|² por bin
+    private final double[] bandEnergy;
+    private final double[] bandDb;
 
     // callback para enviar o espectro em dB para quem quiser (UI, log, etc.)
     private final Consumer<double[]> listener;
@@ -24,8 +83,24 @@ public class SpectrumAnalyzer {
         this.fftSize = fftSize;
         this.listener = listener;
 
-        this.re = new double[fftSize];
-        this.im = new double[fftSize];
+        this.fft = new RealFft(fftSize);
+        this.frame = new double[fftSize];
+        this.re = new double[fft.bins()];
+        this.im = new double[fft.bins()];
+        this.power = new double[fft.bins()];
+        this.bandEnergy = new double[numBands];
+        this.bandDb = new double[numBands];
+
+        this.window = new double[fftSize];
+        for (int n = 0; n < fftSize; n++) {
+            window[n] = (fftSize == 1) ? 1.0
+                    : 0.5 * (1.0 - Math.cos(2.0 * Math.PI * n / (fftSize - 1)));
+        }
+
+        this.ring = new float[fftSize * MAX_WELCH_FRAMES];  // fftSize é potência de 2
+        this.ringMask = ring.length - 1;
+        this.pending = new float[ring.length];
+        this.work = new float[ring.length];
 
         // 10 bandas logarítmicas entre 50 Hz e 20000 Hz
         bandEdgesHz = new double[numBands + 1];
@@ -36,160 +111,208 @@ public class SpectrumAnalyzer {
         for (int i = 1; i <= numBands; i++) {
             bandEdgesHz[i] = bandEdgesHz[i - 1] * ratio;
         }
+
+        int nBins = fftSize / 2;
+        bandBinMin = new int[numBands];
+        bandBinMax = new int[numBands];
+        for (int b = 0; b < numBands; b++) {
+            int kMin = (int) Math.ceil(bandEdgesHz[b] * fftSize / sampleRate);
+            int kMax = (int) Math.floor(bandEdgesHz[b + 1] * fftSize / sampleRate);
+
+            if (kMin < 1) kMin = 1;
+            if (kMax >= nBins) kMax = nBins - 1;
+            if (kMax < kMin) kMax = kMin;
+
+            bandBinMin[b] = kMin;
+            bandBinMax[b] = kMax;
+        }
+
+        setUpdateRateHz(DEFAULT_UPDATE_HZ);
+        setOverlap(DEFAULT_OVERLAP);
+    }
+
+    /** Publicações por segundo de áudio (padrão {@value #DEFAULT_UPDATE_HZ}). */
+    public void setUpdateRateHz(double hz) {
+        this.samplesPerUpdate = (int) Math.max(1, Math.round(sampleRate / Math.max(0.1, hz)));
+    }
+
+    public double getUpdateRateHz() {
+        return sampleRate / (double) samplesPerUpdate;
+    }
+
+    /** Sobreposição entre quadros de Welch, 0 .. 0.875 (padrão 0.5). */
+    public void setOverlap(double overlap) {
+        double o = Math.max(0.0, Math.min(0.875, overlap));
+        this.hop = Math.max(1, (int) Math.round(fftSize * (1.0 - o)));
+    }
+
+    /** Calcula num thread de baixa prioridade (padrão) ou no thread de analyze. */
+    public void setBackground(boolean enabled) {
+        this.background = enabled;
+    }
+
+    /** Analisa o bloco inteiro (ver {@link #analyze(float[], int)}). */
+    public void analyze(float[] interleaved) {
+        analyze(interleaved, interleaved.length);
     }
 
     /**
-     * Analisa um bloco intercalado estéreo (L,R,L,R,...) e envia o vetor de 10 bandas em dB
-     * para o callback listener (caso não seja null).
+     * Acrescenta length amostras intercaladas estéreo (L,R,L,R,...) ao
+     * histórico e, quando completa um intervalo de atualização, publica o
+     * espectro para o listener (caso não seja null).
      */
-    public void analyze(float[] interleaved) {
-        int totalSamples = interleaved.length;
+    public void analyze(float[] interleaved, int length) {
+        int totalSamples = length;
         int channels = 2;  // no nosso player, é sempre estéreo
         int numFrames = totalSamples / channels;
+        if (numFrames <= 0 || listener == null) return;
 
-        int N = Math.min(fftSize, numFrames);
-        if (N <= 0) return;
+        // 1) mono no buffer circular
+        long w = written;
+        for (int n = 0; n < numFrames; n++) {
+            int idxL = n * channels;
+            ring[(int) (w++ & ringMask)] = 0.5f * (interleaved[idxL] + interleaved[idxL + 1]);
+        }
+        written = w;
 
-        // 1) Converter pra mono + janela de Hann
-        for (int n = 0; n < fftSize; n++) {
-            if (n < N) {
-                int idxL = n * channels;
-                int idxR = idxL + 1;
-                float left = interleaved[idxL];
-                float right = (idxR < totalSamples) ? interleaved[idxR] : left;
-                double mono = 0.5 * (left + right);
-
-                double w = 0.5 * (1.0 - Math.cos(2.0 * Math.PI * n / (N - 1)));
-                re[n] = mono * w;
-            } else {
-                re[n] = 0.0;
+        // 2) publica na taxa configurada
+        int perUpdate = samplesPerUpdate;
+        sinceUpdate += numFrames;
+        if (sinceUpdate < perUpdate) {
+            return;
+        }
+        sinceUpdate %= perUpdate;
+
+        // trecho de Welch: o intervalo desde a última publicação,
+        // arredondado para um número inteiro de quadros
+        int h = hop;
+        int frames = Math.max(1, Math.min(MAX_WELCH_FRAMES,
+                1 + Math.max(0, perUpdate - fftSize) / h));
+        int span = Math.min(ring.length, fftSize + (frames - 1) * h);
+
+        if (background) {
+            ensureWorker();
+            synchronized (lock) {
+                copyLatest(pending, span);
+                pendingLength = span;
+                hasPending = true;
+                lock.notify();
+            }
+        } else {
+            synchronized (lock) {
+                if (computing) return;   // worker ainda no cálculo anterior
+                computing = true;
+                hasPending = false;      // cópia pendente do modo anterior: obsoleta
+            }
+            try {
+                copyLatest(work, span);
+                computeAndPublish(work, span);
+            } finally {
+                finishComputing();
             }
-            im[n] = 0.0;
         }
+    }
 
-        // 2) FFT in-place
-        fft(re, im);
-
-        // 3) Magnitude^2 dos bins positivos
-        int nBins = fftSize / 2;
-        double[] mag2 = new double[nBins];
-        for (int k = 0; k < nBins; k++) {
-            mag2[k] = re[k] * re[k] + im[k] * im[k];
+    /** Para o thread de cálculo (se houver). */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            lock.notifyAll();
         }
+    }
+
+    /** Copia as últimas span amostras do buffer circular, em ordem. */
+    private void copyLatest(float[] dst, int span) {
+        int start = (int) ((written - span) & ringMask);
+        int first = Math.min(span, ring.length - start);
+        System.arraycopy(ring, start, dst, 0, first);
+        System.arraycopy(ring, 0, dst, first, span - first);
+    }
 
-        // 4) Energia por banda
-        double[] bandEnergy = new double[numBands];
+    private void ensureWorker() {
+        if (worker != null || closed) return;
+        worker = new Thread(this::runWorker, "eq-spectrum");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
 
-        for (int b = 0; b < numBands; b++) {
-            double fLow = bandEdgesHz[b];
-            double fHigh = bandEdgesHz[b + 1];
+    private void runWorker() {
+        while (true) {
+            int span;
+            synchronized (lock) {
+                while ((!hasPending || computing) && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) return;
+                float[] t = work;
+                work = pending;
+                pending = t;
+                span = pendingLength;
+                hasPending = false;
+                computing = true;
+            }
+            try {
+                computeAndPublish(work, span);
+            } finally {
+                finishComputing();
+            }
+        }
+    }
 
-            int kMin = (int) Math.ceil(fLow * fftSize / sampleRate);
-            int kMax = (int) Math.floor(fHigh * fftSize / sampleRate);
+    private void finishComputing() {
+        synchronized (lock) {
+            computing = false;
+            lock.notifyAll();
+        }
+    }
 
-            if (kMin < 1) kMin = 1;
-            if (kMax >= nBins) kMax = nBins - 1;
-            if (kMax < kMin) kMax = kMin;
+    /** Welch sobre samples[0 .. span), redução em bandas e callback. */
+    private void computeAndPublish(float[] samples, int span) {
+        int h = hop;
+        int frames = 1 + Math.max(0, span - fftSize) / h;
 
-            double sum = 0.0;
-            int count = 0;
-            for (int k = kMin; k <= kMax; k++) {
-                sum += mag2[k];
-                count++;
+        Arrays.fill(power, 0.0);
+        for (int f = 0; f < frames; f++) {
+            int off = f * h;
+            for (int n = 0; n < fftSize; n++) {
+                frame[n] = samples[off + n] * window[n];
             }
-            if (count > 0) {
-                sum /= count;
+            fft.forward(frame, re, im);
+            for (int k = 0; k < power.length; k++) {
+                power[k] += re[k] * re[k] + im[k] * im[k];
             }
-            bandEnergy[b] = sum;
         }
 
-        // 5) Converter energia para dB relativos (0 dB = banda mais forte do bloco)
+        // 3) Energia média por banda
         double maxE = 0.0;
-        for (double e : bandEnergy) {
+        for (int b = 0; b < numBands; b++) {
+            int kMin = bandBinMin[b];
+            int kMax = bandBinMax[b];
+
+            double sum = 0.0;
+            for (int k = kMin; k <= kMax; k++) {
+                sum += power[k];
+            }
+            double e = sum / ((kMax - kMin + 1) * (double) frames);
+            bandEnergy[b] = e;
             if (e > maxE) maxE = e;
         }
+
+        // 4) Converter energia para dB relativos (0 dB = banda mais forte do bloco)
         if (maxE <= 0.0) maxE = 1e-12;
 
-        double[] bandDb = new double[numBands];
         for (int b = 0; b < numBands; b++) {
             double ratio = bandEnergy[b] / maxE;
             if (ratio <= 1e-12) ratio = 1e-12;
             bandDb[b] = 10.0 * Math.log10(ratio);  // 0 dB … -∞
         }
 
-        // 6) Atualiza UI a cada ~4 blocos (~10 vezes/s)
-        frameCounter++;
-        if (frameCounter % 4 != 0) {
-            return;
-        }
-
-        if (listener != null) {
-            listener.accept(bandDb);
-        }
-    }
-
-    // =========================
-    // FFT Cooley-Tukey radix-2
-    // =========================
-    private void fft(double[] real, double[] imag) {
-        int n = real.length;
-        int logN = 0;
-        for (int tmp = n; tmp > 1; tmp >>= 1) {
-            logN++;
-        }
-
-        // bit-reversal
-        for (int i = 0; i < n; i++) {
-            int j = reverseBits(i, logN);
-            if (j > i) {
-                double tr = real[i];
-                real[i] = real[j];
-                real[j] = tr;
-
-                double ti = imag[i];
-                imag[i] = imag[j];
-                imag[j] = ti;
-            }
-        }
-
-        // estágios
-        for (int s = 1; s <= logN; s++) {
-            int m = 1 << s;
-            int m2 = m >> 1;
-            double theta = -2.0 * Math.PI / m;
-            double wpr = Math.cos(theta);
-            double wpi = Math.sin(theta);
-
-            for (int k = 0; k < n; k += m) {
-                double wr = 1.0;
-                double wi = 0.0;
-                for (int j = 0; j < m2; j++) {
-                    int t = k + j + m2;
-                    int u = k + j;
-
-                    double tr = wr * real[t] - wi * imag[t];
-                    double ti = wr * imag[t] + wi * real[t];
-
-                    real[t] = real[u] - tr;
-                    imag[t] = imag[u] - ti;
-
-                    real[u] += tr;
-                    imag[u] += ti;
-
-                    double tmpWr = wr * wpr - wi * wpi;
-                    wi = wr * wpi + wi * wpr;
-                    wr = tmpWr;
-                }
-            }
-        }
-    }
-
-    private int reverseBits(int x, int bits) {
-        int y = 0;
-        for (int i = 0; i < bits; i++) {
-            y = (y << 1) | (x & 1);
-            x >>= 1;
-        }
-        return y;
+        listener.accept(bandDb);
     }
 }
@@ -0,0 +1,199 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Grava PCM 16-bit em WAV direto de blocos float, via FileChannel.
+ *
+ * As amostras são convertidas para um ByteBuffer direto grande e só vão
+ * para o disco quando ele enche (uma syscall por ~1 MiB em vez de uma
+ * por bloco de 4 KB). O cabeçalho reserva um chunk "JUNK" de 28 bytes:
+ * se o arquivo passar de 4 GB, ao fechar ele vira o "ds64" do RF64 (EBU
+ * Tech 3306) com os tamanhos em 64 bits, e "RIFF" vira "RF64". Abaixo
+ * disso o arquivo é um WAV comum (leitores ignoram o JUNK).
+ *
+ * Também grava num OutputStream (sem volta ao cabeçalho): aí os tamanhos
+ * vão como 0xFFFFFFFF, a convenção de WAV em streaming para "até o fim".
+ */
+public final class WavFileSink implements Closeable {
+
+    private static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+
+    // layout do cabeçalho (bytes)
+    private static final int JUNK_OFFSET = 12;
+    private static final int JUNK_SIZE = 28;           // = corpo do ds64
+    private static final int FMT_OFFSET = JUNK_OFFSET + 8 + JUNK_SIZE;
+    private static final int DATA_OFFSET = FMT_OFFSET + 8 + 16;
+    private static final int HEADER_SIZE = DATA_OFFSET + 8;
+    private static final long MAX_RIFF_SIZE = 0xFFFFFFFFL;
+
+    private final WritableByteChannel channel;
+    private final FileChannel file;       // null quando grava num stream
+    private final OutputStream stream;    // null quando grava em arquivo
+    private final ByteBuffer buffer;
+    private final int channels;
+    private final int sampleRate;
+    private long dataBytes = 0;
+
+    public WavFileSink(File file, int sampleRate, int channels) throws IOException {
+        this(file, sampleRate, channels, DEFAULT_BUFFER_BYTES);
+    }
+
+    public WavFileSink(File file, int sampleRate, int channels, int bufferBytes) throws IOException {
+        this.file = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.stream = null;
+        this.channel = this.file;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.buffer = allocateBuffer(bufferBytes, channels);
+
+        writeHeader(0L);
+        this.file.position(HEADER_SIZE);
+    }
+
+    /**
+     * Grava no stream (que continua aberto depois de {@link #close()}:
+     * o dono é quem chamou).
+     */
+    public WavFileSink(OutputStream out, int sampleRate, int channels) throws IOException {
+        this.file = null;
+        this.stream = out;
+        this.channel = Channels.newChannel(out);
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.buffer = allocateBuffer(DEFAULT_BUFFER_BYTES, channels);
+
+        writeHeader(-1L);
+    }
+
+    // múltiplo do tamanho de um frame, para nunca quebrar amostra entre escritas
+    private static ByteBuffer allocateBuffer(int bufferBytes, int channels) {
+        int frameBytes = 2 * channels;
+        return ByteBuffer.allocateDirect(Math.max(frameBytes, bufferBytes / frameBytes * frameBytes))
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Acrescenta length amostras intercaladas em [-1, 1] (fora disso satura),
+     * com o mesmo arredondamento de Mp3RealTimeDecoder.floatToPcm16.
+     */
+    public void write(float[] samples, int length) throws IOException {
+        write(samples, 0, length);
+    }
+
+    /** Idem, a partir de samples[offset]. */
+    public void write(float[] samples, int offset, int length) throws IOException {
+        ByteBuffer buf = buffer;
+        int i = offset;
+        int limit = offset + length;
+        while (i < limit) {
+            int n = Math.min(limit - i, buf.remaining() >> 1);
+            for (int end = i + n; i < end; i++) {
+                float v = samples[i];
+                if (v > 1.0f) v = 1.0f;
+                else if (v < -1.0f) v = -1.0f;
+                buf.putShort((short) Math.round(v * 32767f));
+            }
+            if (!buf.hasRemaining()) {
+                flush();
+            }
+        }
+        dataBytes += 2L * length;
+    }
+
+    /** Bytes de áudio gravados até agora (sem cabeçalho). */
+    public long getDataBytes() {
+        return dataBytes;
+    }
+
+    public long getFramesWritten() {
+        return dataBytes / (2L * channels);
+    }
+
+    /** Esvazia o buffer e, em arquivo, corrige o cabeçalho com os tamanhos finais. */
+    @Override
+    public void close() throws IOException {
+        if (file == null) {
+            flush();
+            stream.flush();
+            return;
+        }
+        try {
+            flush();
+            writeHeader(dataBytes);
+        } finally {
+            file.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** dataSize < 0: tamanho desconhecido (stream). */
+    private void writeHeader(long dataSize) throws IOException {
+        boolean unknown = dataSize < 0;
+        long riffSize = HEADER_SIZE - 8 + dataSize;
+        boolean rf64 = !unknown && riffSize > MAX_RIFF_SIZE;
+
+        ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        h.put(ascii(rf64 ? "RF64" : "RIFF"));
+        h.putInt(rf64 || unknown ? -1 : (int) riffSize);
+        h.put(ascii("WAVE"));
+
+        // JUNK (WAV comum) ou ds64 (RF64): mesmo tamanho
+        h.put(ascii(rf64 ? "ds64" : "JUNK"));
+        h.putInt(JUNK_SIZE);
+        if (rf64) {
+            h.putLong(riffSize);
+            h.putLong(dataSize);
+            h.putLong(dataSize / (2L * channels)); // sampleCount (frames)
+            h.putInt(0);                           // tabela de chunks vazia
+        } else {
+            h.put(new byte[JUNK_SIZE]);
+        }
+
+        // fmt: PCM 16-bit
+        h.put(ascii("fmt "));
+        h.putInt(16);
+        h.putShort((short) 1);
+        h.putShort((short) channels);
+        h.putInt(sampleRate);
+        h.putInt(sampleRate * channels * 2);
+        h.putShort((short) (channels * 2));
+        h.putShort((short) 16);
+
+        h.put(ascii("data"));
+        h.putInt(rf64 || unknown ? -1 : (int) dataSize);
+
+        h.flip();
+        if (file == null) {
+            while (h.hasRemaining()) {
+                channel.write(h);
+            }
+            return;
+        }
+        long pos = 0;
+        while (h.hasRemaining()) {
+            pos += file.write(h, pos);
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}